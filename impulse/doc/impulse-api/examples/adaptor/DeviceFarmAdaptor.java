@@ -0,0 +1,220 @@
+package de.toem.impulse.samples.adaptors.templates;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.toem.impulse.cells.record.IRecord;
+import de.toem.impulse.samples.IFloatSamplesWriter;
+import de.toem.impulse.samples.ISample;
+import de.toem.impulse.samples.ISamples;
+import de.toem.impulse.samples.SamplesRetention;
+import de.toem.impulse.samples.adaptors.AbstractConnectionRecordAdaptor;
+import de.toem.impulse.samples.adaptors.IngestionQueue;
+import de.toem.impulse.samples.domain.TimeBase;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.element.adaptor.AdaptorException;
+import de.toem.toolkits.pattern.element.adaptor.ICellAdaptorDescriptor;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.properties.PropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+
+/**
+ * Example implementation of an adaptor serving many device connections in one record.
+ *
+ * The DeviceFarmAdaptor listens on a TCP port. Each device connects and sends text lines: an optional first line
+ * "#name device" followed by "signal=value" lines with float values. Each connection becomes a scope with one float
+ * signal per signal name; samples are stamped with their receive time.
+ *
+ * Key features demonstrated by this example:
+ * - Extending AbstractConnectionRecordAdaptor: one task per connection with blocking reads (virtual threads on
+ *   Java 21+), flushing by the shared scheduler
+ * - Creating scopes and signals while the record is open
+ * - Batching the lines available on a connection into one produce call
+ * - Bounded ingestion queue for bursts (IngestionQueue properties)
+ * - Retention for 24/7 operation (SamplesRetention properties)
+ *
+ * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 325
+ */
+public class DeviceFarmAdaptor extends AbstractConnectionRecordAdaptor {
+
+    /** Maximum number of lines written in one produce call */
+    private static final int BATCH = 256;
+
+    private long started;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor for the DeviceFarmAdaptor.
+     */
+    public DeviceFarmAdaptor() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor for the DeviceFarmAdaptor.
+     *
+     * @param descriptor
+     *            The adaptor descriptor providing contextual information
+     * @param cellType
+     *            The type of cell that will be produced
+     * @param configuration
+     *            Configuration name for specialized settings
+     * @param properties
+     *            Additional properties as key-value pairs
+     */
+    public DeviceFarmAdaptor(ICellAdaptorDescriptor descriptor, String cellType, String configuration, String[][] properties) {
+        super(descriptor, cellType, configuration, properties, getPropertyModel(descriptor, null));
+    }
+
+    // ========================================================================================================================
+    // Supports
+    // ========================================================================================================================
+
+    /**
+     * Determines if this adaptor supports the specified functionality request.
+     *
+     * @param request
+     *            An Integer identifying the functionality being queried (usually one of the SUPPORT_* constants)
+     * @param context
+     *            Additional context for the request
+     * @return true if the adaptor supports the requested functionality, false otherwise
+     */
+    public static boolean supports(Object request, Object context) {
+        int ir = request instanceof Integer ? ((Integer) request).intValue() : -1;
+        return ir == (ir & (SUPPORT_PROPERTIES | SUPPORT_CONFIGURATION));
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Creates and returns the property model for configuring this adaptor.
+     *
+     * @param object
+     *            The adaptor descriptor, used to provide context
+     * @param context
+     *            Additional context information, particularly for preferences
+     * @return The property model containing all configurable properties for this adaptor
+     */
+    static public IPropertyModel getPropertyModel(ICellAdaptorDescriptor object, Object context) {
+        return new PropertyModel().add("port", 5555, null, null, null, "Port", null, "TCP port the devices connect to")
+                .add(IngestionQueue.getPropertyModel()).add(SamplesRetention.getPropertyModel());
+    }
+
+    // ========================================================================================================================
+    // Connections
+    // ========================================================================================================================
+
+    /**
+     * Creates the record; device scopes are added when the devices connect.
+     *
+     * @param progress
+     *            Interface for reporting progress and checking for cancellation
+     * @throws AdaptorException
+     *             If the record cannot be created
+     */
+    @Override
+    protected void init(IProgress progress) throws AdaptorException {
+        initRecord("Devices", TimeBase.us);
+        started = System.nanoTime();
+        open(0);
+        changed(CHANGED_RECORD);
+    }
+
+    /**
+     * Accepts device connections until the adaptor is canceled.
+     *
+     * @param progress
+     *            Interface for reporting progress and checking for cancellation
+     * @throws IOException
+     *             If the port cannot be opened
+     */
+    @Override
+    protected void accept(IProgress progress) throws IOException {
+        ServerSocket server = register(new ServerSocket());
+        server.bind(new InetSocketAddress(getTypedProperty("port", Integer.class)));
+        while (!isStopped()) {
+            Socket socket = server.accept();
+            socket.setTcpNoDelay(true);
+            connect(socket, this::serve);
+        }
+    }
+
+    /**
+     * Reads the lines of one device. Runs on the connection task.
+     */
+    private void serve(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        Device device = new Device(socket.getRemoteSocketAddress().toString());
+        String line;
+        while ((line = in.readLine()) != null) {
+
+            // all lines already received are written at once; a new list per batch, as the writes may be queued
+            List<String> lines = new ArrayList<>(BATCH);
+            lines.add(line);
+            while (lines.size() < BATCH && in.ready() && (line = in.readLine()) != null)
+                lines.add(line);
+            long position = (System.nanoTime() - started) / 1000;
+            produce(position, () -> {
+                for (String received : lines)
+                    device.write(position, received);
+            });
+        }
+    }
+
+    // ========================================================================================================================
+    // Device
+    // ========================================================================================================================
+
+    /**
+     * The scope and the signals of one connection. Used inside produce only.
+     */
+    private class Device {
+        private String name;
+        private ICell scope;
+        private final Map<String, IRecord.Signal> signals = new HashMap<>();
+
+        Device(String name) {
+            this.name = name;
+        }
+
+        void write(long position, String line) {
+            if (line.startsWith("#name ") && scope == null) {
+                name = line.substring(6).trim();
+                return;
+            }
+            int split = line.indexOf('=');
+            if (split <= 0)
+                return;
+            double value;
+            try {
+                value = Double.parseDouble(line.substring(split + 1).trim());
+            } catch (NumberFormatException e) {
+                return;
+            }
+            String name = line.substring(0, split).trim();
+            IRecord.Signal signal = signals.get(name);
+            if (signal == null) {
+                if (scope == null)
+                    scope = addScope(null, this.name, null, null);
+                signal = addSignal(scope, name, null, null, ISample.DATA_TYPE_FLOAT, -1, ISamples.FORMAT_DEFAULT);
+                signals.put(name, signal);
+            }
+            // the writer is fetched for each write, the retention may replace it
+            ((IFloatSamplesWriter) getWriter(signal)).write(position, false, value);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package de.toem.impulse.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import de.toem.impulse.provider.ISamplesProvider;
+import de.toem.impulse.samples.IReadableSamples;
+import de.toem.impulse.samples.Instrumentation;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.element.ICover;
+import de.toem.toolkits.pattern.element.producer.ICellProducer;
+import de.toem.toolkits.pattern.element.producer.ICellProducer.IFlushListener;
+import de.toem.toolkits.pattern.element.producer.ICellProducer.ProducerProgress;
+import de.toem.toolkits.pattern.element.serializer.ICellSerializer;
+import de.toem.toolkits.pattern.element.serializer.ICellSerializer.ICellReader;
+import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
+import de.toem.toolkits.pattern.element.serializer.SerializerDescriptor;
+
+/**
+ * Import throughput benchmark for record readers.
+ *
+ * The ImportBenchmark drives any cell reader (e.g. the LineReader and ByteBlockReader examples, or the
+ * VCD, flux and recML readers of impulse) headless through its serializer descriptor: the reader is
+ * instantiated with ISerializerDescriptor.newInstance(...) and executed with ICellProducer.run(progress),
+ * which calls the parse(IProgress, InputStream) method of the reader.
+ *
+ * Measurements (one result line per reader, input and iteration):
+ * - bytes: size of the input
+ * - first_flush_ms: time until the reader flushed the first samples (time until a view could show content)
+ * - total_ms: time to parse the complete input
+ * - mb_per_s: input throughput
+ * - samples, samples_per_s: number of samples in the produced record and sample throughput
+ * - peak_heap_mb: peak heap usage during the import (sum of the heap pool peaks)
+ * - gc_ms, gc_count: garbage collection time and count during the import
+ *
+ * Inputs are either supplied files or generated files (generate=lines or generate=bytes with a given size).
+ * Results are written as CSV (header line first) to stdout, or to the given file.
+ *
+ * Usage (classpath containing the impulse plugins and the reader):
+ * java de.toem.impulse.benchmark.ImportBenchmark reader=de.toem.impulse.serializer.templates.LineReader [file=trace.log | generate=lines size=64m]
+ * [iterations=3] [properties=key:value,...] [out=results.csv]
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 311
+ */
+public class ImportBenchmark {
+
+    // ========================================================================================================================
+    // Content
+    // ========================================================================================================================
+
+    /** CSV header of the result lines */
+    public static final String HEADER = "reader,input,iteration,bytes,first_flush_ms,total_ms,mb_per_s,samples,samples_per_s,peak_heap_mb,gc_ms,gc_count";
+
+    /**
+     * The result of a single import.
+     */
+    public static class Result {
+        public String reader;
+        public String input;
+        public int iteration;
+        public long bytes;
+        public double firstFlushMs = -1;
+        public double totalMs;
+        public long samples;
+        public long peakHeap;
+        public long gcMs;
+        public long gcCount;
+
+        public double mbPerSecond() {
+            return totalMs > 0 ? bytes / 1048576.0 / (totalMs / 1000.0) : 0;
+        }
+
+        public double samplesPerSecond() {
+            return totalMs > 0 ? samples / (totalMs / 1000.0) : 0;
+        }
+
+        /**
+         * Returns the result as CSV line (see HEADER).
+         */
+        public String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f,%.3f,%.2f,%d,%.0f,%.1f,%d,%d", reader, input, iteration, bytes, firstFlushMs, totalMs,
+                    mbPerSecond(), samples, samplesPerSecond(), peakHeap / 1048576.0, gcMs, gcCount);
+        }
+    }
+
+    private final List<Result> results = new ArrayList<>();
+
+    // ========================================================================================================================
+    // Main
+    // ========================================================================================================================
+
+    public static void main(String[] args) throws Exception {
+        String reader = null, file = null, generate = null, out = null;
+        long size = 64 << 20;
+        int iterations = 3;
+        List<String[]> properties = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq > 0 ? arg.substring(0, eq) : arg;
+            String value = eq > 0 ? arg.substring(eq + 1) : "";
+            if ("reader".equals(key))
+                reader = value;
+            else if ("file".equals(key))
+                file = value;
+            else if ("generate".equals(key))
+                generate = value;
+            else if ("size".equals(key))
+                size = parseSize(value);
+            else if ("iterations".equals(key))
+                iterations = Integer.parseInt(value);
+            else if ("properties".equals(key))
+                for (String property : value.split(",")) {
+                    int colon = property.indexOf(':');
+                    if (colon > 0)
+                        properties.add(new String[] { property.substring(0, colon), property.substring(colon + 1) });
+                }
+            else if ("out".equals(key))
+                out = value;
+        }
+        if (reader == null || (file == null && generate == null)) {
+            System.err.println("usage: ImportBenchmark reader=<class> (file=<path> | generate=lines|bytes [size=64m]) [iterations=3] [properties=k:v,...] [out=<csv>]");
+            return;
+        }
+
+        // input
+        File input;
+        if (file != null)
+            input = new File(file);
+        else {
+            input = File.createTempFile("impulse-import-", "." + generate);
+            input.deleteOnExit();
+            generate(generate, size, input);
+        }
+
+        // run
+        ImportBenchmark benchmark = new ImportBenchmark();
+        ISerializerDescriptor descriptor = descriptor(reader);
+        String[][] props = properties.toArray(new String[properties.size()][]);
+        for (int n = 0; n < iterations; n++)
+            benchmark.measure(descriptor, props, input, n);
+        if (out != null)
+            try (PrintWriter writer = new PrintWriter(new FileWriter(out))) {
+                benchmark.print(writer);
+            }
+        else
+            benchmark.print(new PrintWriter(System.out, true));
+    }
+
+    /**
+     * Prints all results as CSV.
+     */
+    public void print(PrintWriter out) {
+        out.println(HEADER);
+        for (Result result : results)
+            out.println(result.toCsv());
+        out.flush();
+    }
+
+    /**
+     * Returns all results measured so far.
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    // ========================================================================================================================
+    // Measure
+    // ========================================================================================================================
+
+    /**
+     * Imports the given file once and records the result.
+     *
+     * @param descriptor The serializer descriptor of the reader.
+     * @param properties The reader properties (key/value pairs), or null for defaults.
+     * @param input The input file.
+     * @param iteration The iteration number (reported only).
+     * @return The result.
+     * @throws IOException If the file cannot be opened.
+     */
+    public Result measure(ISerializerDescriptor descriptor, String[][] properties, File input, int iteration) throws IOException {
+        Result result = new Result();
+        result.reader = descriptor.getId();
+        result.input = input.getName();
+        result.iteration = iteration;
+        result.bytes = input.length();
+
+        // settle heap and reset counters
+        System.gc();
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                pools.add(pool);
+            }
+        long gcMs = 0, gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMs -= gc.getCollectionTime();
+            gcCount -= gc.getCollectionCount();
+        }
+
+        // import
+        long started = System.nanoTime();
+        long[] firstFlush = { -1 };
+        IFlushListener listener = new IFlushListener() {
+            @Override
+            public void flushed(ICellProducer producer, ICover cover, int changed) {
+                if (firstFlush[0] < 0)
+                    firstFlush[0] = System.nanoTime();
+            }
+        };
+        ICover cover;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(input), 1 << 16)) {
+            ICellReader reader = descriptor.newInstance(input.getName(), null, null, null, properties, in);
+            ProducerProgress progress = new ProducerProgress(descriptor.getId(), listener);
+            progress.total(result.bytes);
+            Instrumentation.IEvent event = Instrumentation.begin(Instrumentation.EVENT_PRODUCE);
+            try {
+                cover = reader.run(progress);
+            } finally {
+                event.commit(input.getName(), descriptor.getId());
+            }
+        }
+        long ended = System.nanoTime();
+
+        // collect
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMs += gc.getCollectionTime();
+            gcCount += gc.getCollectionCount();
+        }
+        for (MemoryPoolMXBean pool : pools)
+            result.peakHeap += pool.getPeakUsage().getUsed();
+        result.totalMs = (ended - started) / 1e6;
+        result.firstFlushMs = firstFlush[0] >= 0 ? (firstFlush[0] - started) / 1e6 : -1;
+        result.gcMs = gcMs;
+        result.gcCount = gcCount;
+        result.samples = cover != null && cover.hasCell() ? countSamples(cover.getCell()) : 0;
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Returns the total number of samples of all signals below the given cell.
+     * Reader messages (e.g. parse errors) found on the way are printed to stderr.
+     */
+    public static long countSamples(ICell cell) {
+        long count = 0;
+        if (cell instanceof ICellSerializer.Message)
+            System.err.println("# " + cell);
+        if (cell instanceof ISamplesProvider) {
+            IReadableSamples samples = ((ISamplesProvider) cell).getSamples();
+            if (samples != null)
+                count += samples.getCount();
+        }
+        List<ICell> children = cell.getChildren();
+        if (children != null)
+            for (ICell child : children)
+                count += countSamples(child);
+        return count;
+    }
+
+    // ========================================================================================================================
+    // Readers and inputs
+    // ========================================================================================================================
+
+    /**
+     * Creates a serializer descriptor for the given reader class.
+     * Registered readers are usually looked up from the serializer registry; outside of the
+     * application the descriptor is created from the class name.
+     */
+    @SuppressWarnings("unchecked")
+    public static ISerializerDescriptor descriptor(String className) throws ClassNotFoundException {
+        Class<? extends ICellSerializer> clazz = (Class<? extends ICellSerializer>) Class.forName(className);
+        return new SerializerDescriptor(clazz.getSimpleName(), clazz.getSimpleName(), clazz);
+    }
+
+    /**
+     * Generates an input file.
+     *
+     * @param kind "lines" for log-like text lines, "bytes" for pseudo random binary data.
+     * @param size The file size in bytes.
+     * @param file The target file.
+     */
+    public static void generate(String kind, long size, File file) throws IOException {
+        Random random = new Random(SyntheticSamples.SEED);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            if ("bytes".equals(kind)) {
+                byte[] block = new byte[1 << 16];
+                for (long written = 0; written < size; written += block.length) {
+                    random.nextBytes(block);
+                    out.write(block, 0, (int) Math.min(block.length, size - written));
+                }
+            } else {
+                String[] words = { "INFO", "DEBUG", "WARN", "read", "write", "addr", "0x1000", "ack", "retry", "timeout", "done" };
+                StringBuilder line = new StringBuilder();
+                for (long written = 0, n = 0; written < size; n++) {
+                    line.setLength(0);
+                    line.append(n);
+                    for (int w = 1 + random.nextInt(8); w > 0; w--)
+                        line.append(' ').append(words[random.nextInt(words.length)]);
+                    line.append('\n');
+                    byte[] bytes = line.toString().getBytes(StandardCharsets.US_ASCII);
+                    out.write(bytes);
+                    written += bytes.length;
+                }
+            }
+        }
+    }
+
+    private static long parseSize(String value) {
+        String v = value.trim().toLowerCase();
+        long factor = v.endsWith("g") ? 1L << 30 : v.endsWith("m") ? 1L << 20 : v.endsWith("k") ? 1L << 10 : 1;
+        return Long.parseLong(factor > 1 ? v.substring(0, v.length() - 1) : v) * factor;
+    }
+}
@@ -0,0 +1,221 @@
+package de.toem.impulse.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import de.toem.impulse.benchmark.SyntheticSamples.Kind;
+import de.toem.impulse.samples.IReadableSamples;
+import de.toem.impulse.samples.ISamplePointerIterator;
+import de.toem.impulse.samples.ISamplesWriter;
+import de.toem.impulse.samples.base.PackedSamples;
+import de.toem.impulse.samples.domain.DomainValue;
+import de.toem.impulse.samples.domain.TimeBase;
+import de.toem.impulse.samples.iterator.DefaultSamplePointerIterator;
+import de.toem.impulse.samples.iterator.SamplePointer;
+import de.toem.impulse.samples.reader.SamplesReader;
+
+/**
+ * Micro benchmarks for the samples read/write API.
+ *
+ * The SamplesBenchmark runs a fixed set of measurements on synthetic signals (see SyntheticSamples)
+ * and prints one result line per measurement, signal type and mode. It is meant to be run before
+ * upgrading impulse in production, comparing the results with the ones of the previous release.
+ *
+ * Measurements:
+ * - write: ns per sample written through the typed writers (including open, flush and close)
+ * - read: ns per sample for sequential valueAt access
+ * - indexAt: ns per indexAt lookup at random positions
+ * - iterate: ns per position step of an ISamplePointerIterator
+ * - domain: ns per DomainValue add/compare/convert operation
+ *
+ * Each measurement reports ns/op, ops/s and allocated bytes/op (from the thread allocation counter of the JVM).
+ * Warmup and measurement iterations work like in JMH: warmup results are dropped, the median of the
+ * measurement iterations is reported.
+ *
+ * Usage (classpath containing the impulse plugins):
+ * java de.toem.impulse.benchmark.SamplesBenchmark [samples=1000000] [warmup=2] [iterations=5] [kinds=LOGIC,FLOAT,...] [out=results.csv]
+ *
+ * Samples can be set up to 2^31-1 per signal; allow enough heap (e.g. -Xmx32g for 1G integer samples).
+ * Results are written as CSV (header line first) to stdout, or to the given file.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 309
+ */
+public class SamplesBenchmark {
+
+    // ========================================================================================================================
+    // Content
+    // ========================================================================================================================
+
+    /** CSV header of the result lines */
+    public static final String HEADER = "benchmark,kind,mode,samples,ns_per_op,ops_per_s,bytes_per_op";
+
+    /** Consumes results so the JIT cannot drop the measured code */
+    static volatile long sink;
+
+    private long samples = 1_000_000;
+    private int warmup = 2;
+    private int iterations = 5;
+    private List<Kind> kinds = new ArrayList<>(Arrays.asList(Kind.values()));
+    private final List<String> results = new ArrayList<>();
+
+    /**
+     * A measured operation. Returns the number of operations performed.
+     */
+    interface Operation {
+        long run();
+    }
+
+    // ========================================================================================================================
+    // Main
+    // ========================================================================================================================
+
+    public static void main(String[] args) throws IOException {
+        SamplesBenchmark benchmark = new SamplesBenchmark();
+        String out = null;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq > 0 ? arg.substring(0, eq) : arg;
+            String value = eq > 0 ? arg.substring(eq + 1) : "";
+            if ("samples".equals(key)) {
+                benchmark.samples = Long.parseLong(value.replace("_", ""));
+                if (benchmark.samples <= 0)
+                    throw new IllegalArgumentException("samples must be positive: " + value);
+            } else if ("warmup".equals(key))
+                benchmark.warmup = Integer.parseInt(value);
+            else if ("iterations".equals(key))
+                benchmark.iterations = Integer.parseInt(value);
+            else if ("kinds".equals(key)) {
+                benchmark.kinds.clear();
+                for (String kind : value.split(","))
+                    benchmark.kinds.add(Kind.valueOf(kind.trim().toUpperCase()));
+            } else if ("out".equals(key))
+                out = value;
+        }
+        benchmark.run();
+        if (out != null)
+            try (PrintWriter writer = new PrintWriter(new FileWriter(out))) {
+                benchmark.print(writer);
+            }
+        else
+            benchmark.print(new PrintWriter(System.out, true));
+    }
+
+    /**
+     * Runs all measurements.
+     */
+    public void run() {
+        PrintStream log = System.err;
+        for (Kind kind : kinds)
+            for (boolean equidistant : new boolean[] { true, false }) {
+                String mode = equidistant ? "equidistant" : "sparse";
+                log.println("# " + kind + " " + mode);
+
+                // write
+                measure("write", kind, mode, () -> {
+                    SyntheticSamples synthetic = new SyntheticSamples(kind, equidistant);
+                    synthetic.fill(synthetic.create(), samples);
+                    return samples;
+                });
+
+                // read access
+                SyntheticSamples synthetic = new SyntheticSamples(kind, equidistant);
+                ISamplesWriter writer = synthetic.create();
+                long end = synthetic.fill(writer, samples);
+                IReadableSamples reader = new SamplesReader((PackedSamples) writer);
+                int count = reader.getCount();
+                measure("read", kind, mode, () -> {
+                    long hash = 0;
+                    for (int idx = 0; idx < count; idx++)
+                        hash += reader.valueAt(idx) != null ? 1 : 0;
+                    sink += hash;
+                    return count;
+                });
+                measure("indexAt", kind, mode, () -> {
+                    Random random = new Random(SyntheticSamples.SEED);
+                    int lookups = Math.min(count, 1_000_000);
+                    long hash = 0;
+                    for (int n = 0; n < lookups; n++)
+                        hash += reader.indexAt(end > 0 ? (random.nextLong() & Long.MAX_VALUE) % end : 0);  // a single sample ends at 0
+                    sink += hash;
+                    return lookups;
+                });
+                measure("iterate", kind, mode, () -> {
+                    ISamplePointerIterator iterator = new DefaultSamplePointerIterator(new SamplePointer(reader));
+                    long steps = 0;
+                    while (iterator.hasNext()) {
+                        sink += iterator.next();
+                        steps++;
+                    }
+                    return steps;
+                });
+            }
+
+        // domain arithmetic
+        measure("domain", null, "-", () -> {
+            DomainValue step = DomainValue.valueOf(TimeBase.ns, Long.valueOf(SyntheticSamples.RATE));
+            DomainValue limit = DomainValue.valueOf(TimeBase.ms, Long.valueOf(1));
+            DomainValue value = DomainValue.valueOf(TimeBase.ns, Long.valueOf(0));
+            long ops = Math.min(samples, 1_000_000);
+            long hash = 0;
+            for (long n = 0; n < ops; n++) {
+                value = value.add(step);
+                if (DomainValue.compare(value, limit, 0) > 0)
+                    value = DomainValue.valueOf(TimeBase.ns, Long.valueOf(0));
+                hash += value.convertTo(TimeBase.ps).longMultiple();
+            }
+            sink += hash;
+            return ops;
+        });
+    }
+
+    /**
+     * Prints all results as CSV.
+     */
+    public void print(PrintWriter out) {
+        out.println(HEADER);
+        for (String result : results)
+            out.println(result);
+        out.flush();
+    }
+
+    // ========================================================================================================================
+    // Measure
+    // ========================================================================================================================
+
+    private void measure(String benchmark, Kind kind, String mode, Operation operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        double[] nsPerOp = new double[iterations];
+        double[] bytesPerOp = new double[iterations];
+        for (int n = -warmup; n < iterations; n++) {
+            long allocated = threads.getThreadAllocatedBytes(tid);
+            long started = System.nanoTime();
+            long ops = Math.max(1, operation.run());
+            long elapsed = System.nanoTime() - started;
+            allocated = threads.getThreadAllocatedBytes(tid) - allocated;
+            if (n >= 0) {
+                nsPerOp[n] = (double) elapsed / ops;
+                bytesPerOp[n] = (double) allocated / ops;
+            }
+        }
+        double ns = median(nsPerOp);
+        results.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%.3f,%.0f,%.2f", benchmark, kind != null ? kind.name().toLowerCase() : "-", mode,
+                samples, ns, ns > 0 ? 1e9 / ns : 0, median(bytesPerOp)));
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+    }
+}
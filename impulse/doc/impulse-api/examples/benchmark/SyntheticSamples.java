@@ -0,0 +1,194 @@
+package de.toem.impulse.benchmark;
+
+import java.util.Random;
+
+import de.toem.impulse.samples.IBinarySamplesWriter;
+import de.toem.impulse.samples.IFloatSamplesWriter;
+import de.toem.impulse.samples.IIntegerSamplesWriter;
+import de.toem.impulse.samples.ILogicSamplesWriter;
+import de.toem.impulse.samples.ISample;
+import de.toem.impulse.samples.ISamplesWriter;
+import de.toem.impulse.samples.IStructSamplesWriter;
+import de.toem.impulse.samples.ITextSamplesWriter;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.impulse.samples.domain.TimeBase;
+import de.toem.impulse.samples.raw.StructMember;
+import de.toem.impulse.samples.writer.BinarySamplesWriter;
+import de.toem.impulse.samples.writer.FloatSamplesWriter;
+import de.toem.impulse.samples.writer.IntegerSamplesWriter;
+import de.toem.impulse.samples.writer.LogicSamplesWriter;
+import de.toem.impulse.samples.writer.StructSamplesWriter;
+import de.toem.impulse.samples.writer.TextSamplesWriter;
+
+/**
+ * Generator for synthetic signals used by the samples benchmarks.
+ *
+ * The SyntheticSamples class creates standalone samples writers (not attached to a record) and fills
+ * them with deterministic, pseudo random content. All signal types of the samples API are covered,
+ * either equidistant (continuous, fixed rate) or sparse (discrete, random gaps).
+ *
+ * Key features demonstrated by this example:
+ * - Creating samples writers without a record producer
+ * - Writing equidistant and sparse signals of all data types
+ * - Reusing value buffers and struct members to keep allocation out of the write loop
+ *
+ * The content is derived from a fixed seed, so runs are comparable across releases.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 307
+ */
+public class SyntheticSamples {
+
+    // ========================================================================================================================
+    // Content
+    // ========================================================================================================================
+
+    /**
+     * Signal types covered by the benchmarks.
+     */
+    public enum Kind {
+        LOGIC(ISample.DATA_TYPE_LOGIC, 32), FLOAT(ISample.DATA_TYPE_FLOAT, -1), INTEGER(ISample.DATA_TYPE_INTEGER, -1), TEXT(ISample.DATA_TYPE_TEXT,
+                -1), STRUCT(ISample.DATA_TYPE_STRUCT, -1), BINARY(ISample.DATA_TYPE_BINARY, -1);
+
+        public final int type;
+        public final int scale;
+
+        Kind(int type, int scale) {
+            this.type = type;
+            this.scale = scale;
+        }
+    }
+
+    /** Domain rate of equidistant signals and mean gap of sparse signals (in domain units) */
+    public static final long RATE = 10;
+
+    /** Fixed seed for reproducible content */
+    public static final long SEED = 0x5eedL;
+
+    private static final IDomainBase BASE = TimeBase.ns;
+    private static final String[] TEXTS = { "IDLE", "READ 0x1000", "WRITE 0x2000", "ACK", "NACK", "RETRY", "ERROR: timeout" };
+
+    private final Kind kind;
+    private final boolean equidistant;
+    private final Random random = new Random(SEED);
+    private final byte[] logicStates;
+    private final byte[] bytes = new byte[16];
+    private StructMember[] members;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a generator for the given signal type.
+     *
+     * @param kind The signal type.
+     * @param equidistant If true, samples are written with a fixed rate, otherwise with random gaps.
+     */
+    public SyntheticSamples(Kind kind, boolean equidistant) {
+        this.kind = kind;
+        this.equidistant = equidistant;
+        this.logicStates = new byte[Math.max(1, kind.scale)];
+    }
+
+    // ========================================================================================================================
+    // Generate
+    // ========================================================================================================================
+
+    /**
+     * Creates and opens a new writer for the signal type.
+     *
+     * @return The opened writer.
+     */
+    public ISamplesWriter create() {
+        String name = kind.name().toLowerCase();
+        ISamplesWriter writer;
+        switch (kind) {
+        case LOGIC:
+            writer = new LogicSamplesWriter(name, null, null, null, kind.type, kind.scale, ISample.FORMAT_DEFAULT, BASE);
+            break;
+        case FLOAT:
+            writer = new FloatSamplesWriter(name, null, null, null, kind.type, kind.scale, ISample.FORMAT_DEFAULT, BASE);
+            break;
+        case INTEGER:
+            writer = new IntegerSamplesWriter(name, null, null, null, kind.type, kind.scale, ISample.FORMAT_DEFAULT, BASE);
+            break;
+        case TEXT:
+            writer = new TextSamplesWriter(name, null, null, null, kind.type, kind.scale, ISample.FORMAT_DEFAULT, BASE);
+            break;
+        case STRUCT:
+            writer = new StructSamplesWriter(name, null, null, null, kind.type, kind.scale, ISample.FORMAT_DEFAULT, BASE);
+            break;
+        default:
+            writer = new BinarySamplesWriter(name, null, null, null, kind.type, kind.scale, ISample.FORMAT_DEFAULT, BASE);
+        }
+        if (equidistant)
+            writer.open(0, RATE);
+        else
+            writer.open(0);
+        return writer;
+    }
+
+    /**
+     * Writes samples into the given writer and closes it.
+     *
+     * @param writer The opened writer (see create()).
+     * @param count The number of samples to write.
+     * @return The end position.
+     */
+    public long fill(ISamplesWriter writer, long count) {
+        long position = 0;
+        for (long n = 0; n < count; n++) {
+            write(writer, position, n);
+            position += equidistant ? RATE : 1 + random.nextInt((int) RATE * 2);
+        }
+        writer.close(position);
+        return position;
+    }
+
+    /**
+     * Writes a single sample.
+     *
+     * @param writer The opened writer.
+     * @param position The domain position.
+     * @param n The sample number, used to derive the value.
+     */
+    public void write(ISamplesWriter writer, long position, long n) {
+        int value = random.nextInt();
+        switch (kind) {
+        case LOGIC:
+            for (int i = 0; i < logicStates.length; i++)
+                logicStates[i] = (byte) ((value >>> (i & 31)) & 1);
+            if ((n & 0xff) == 0)
+                logicStates[0] = ISample.STATE_X_BITS;
+            ((ILogicSamplesWriter) writer).write(position, false, (byte) ISample.STATE_0_BITS, logicStates, 0, logicStates.length);
+            break;
+        case FLOAT:
+            ((IFloatSamplesWriter) writer).write(position, false, Math.sin(n * 0.001) * 100.0 + (value & 0xff) * 0.01);
+            break;
+        case INTEGER:
+            ((IIntegerSamplesWriter) writer).write(position, false, (long) value);
+            break;
+        case TEXT:
+            ((ITextSamplesWriter) writer).write(position, false, TEXTS[(value >>> 1) % TEXTS.length]);
+            break;
+        case STRUCT:
+            IStructSamplesWriter structWriter = (IStructSamplesWriter) writer;
+            if (members == null || !structWriter.copiesMembers()) {
+                members = structWriter.createMembers(3);
+                structWriter.createMember(members, 0, "id", null, null, null, ISample.DATA_TYPE_INTEGER, -1, ISample.FORMAT_HEXADECIMAL);
+                structWriter.createMember(members, 1, "value", null, null, null, ISample.DATA_TYPE_FLOAT, -1, ISample.FORMAT_DEFAULT);
+                structWriter.createMember(members, 2, "text", null, null, null, ISample.DATA_TYPE_TEXT, -1, ISample.FORMAT_DEFAULT);
+            }
+            structWriter.setLong(members, 0, value & 0x7ff);
+            structWriter.setDouble(members, 1, (value & 0xffff) * 0.1);
+            members[2].setStringValue(TEXTS[(value >>> 1) % TEXTS.length]);
+            structWriter.write(position, false, members);
+            break;
+        default:
+            random.nextBytes(bytes);
+            ((IBinarySamplesWriter) writer).write(position, false, bytes, 0, 1 + (value & 0xf));
+        }
+    }
+}
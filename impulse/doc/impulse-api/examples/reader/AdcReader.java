@@ -0,0 +1,235 @@
+package de.toem.impulse.serializer.templates;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import de.toem.impulse.cells.record.IRecord;
+import de.toem.impulse.samples.ISample;
+import de.toem.impulse.samples.ISamples;
+import de.toem.impulse.samples.domain.DomainValue;
+import de.toem.impulse.serializer.AbstractSingleDomainRecordReader;
+import de.toem.impulse.serializer.Decimator;
+import de.toem.impulse.serializer.FlushScheduler;
+import de.toem.impulse.serializer.IParsingRecordReader;
+import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
+import de.toem.toolkits.pattern.element.serializer.SingletonSerializerPreference.DefaultSerializerConfiguration;
+import de.toem.toolkits.pattern.ide.ConfiguredConsoleStream;
+import de.toem.toolkits.pattern.ide.IConsoleStream;
+import de.toem.toolkits.pattern.ide.Ide;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+import de.toem.toolkits.utils.serializer.ParseException;
+
+/**
+ * Example implementation of a record reader for raw ADC captures.
+ *
+ * The AdcReader reads headerless captures of interleaved 16-bit signed little-endian samples (one frame holds one
+ * sample per channel) with a fixed sample period. Each channel becomes an integer signal on a continuous grid.
+ *
+ * Key features demonstrated by this example:
+ * - Writing continuous signals (writers opened with a rate)
+ * - Import-time decimation of oversampled channels with the Decimator (keep every Nth, min/max pairs or average)
+ * - Selecting the decimated signals with signal path patterns
+ *
+ * Implementation Notes:
+ * - The sample period defines the domain base of the record (e.g. "1ns" for 1 GS/s)
+ * - Decimated channels are stored with the decimated rate on the original grid
+ * - The reader does not detect the format; it has to be selected explicitly
+ *
+ * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 323
+ */
+public class AdcReader extends AbstractSingleDomainRecordReader {
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor for the AdcReader.
+     */
+    public AdcReader() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor for the AdcReader.
+     *
+     * @param descriptor
+     *            The serializer descriptor providing contextual information
+     * @param contentName
+     *            The name of the content being processed
+     * @param contentType
+     *            The MIME type or other format descriptor of the content
+     * @param cellType
+     *            The type of cell that will be produced
+     * @param configuration
+     *            Configuration name for specialized settings
+     * @param properties
+     *            Additional properties as key-value pairs
+     * @param in
+     *            The input stream containing the data to be read
+     */
+    public AdcReader(ISerializerDescriptor descriptor, String contentName, String contentType, String cellType, String configuration,
+            String[][] properties, InputStream in) {
+        super(descriptor, configuration, properties, getPropertyModel(descriptor, null), in);
+    }
+
+    // ========================================================================================================================
+    // Supports
+    // ========================================================================================================================
+
+    /**
+     * Determines if this reader supports the specified functionality request.
+     *
+     * @param request
+     *            An Integer identifying the functionality being queried (usually one of the SUPPORT_* constants)
+     * @param context
+     *            Additional context for the request, typically a configuration type string
+     * @return true if the reader supports the requested functionality, false otherwise
+     */
+    public static boolean supports(Object request, Object context) {
+        int ir = request instanceof Integer ? ((Integer) request).intValue() : -1;
+        if (SUPPORT_CONFIGURATION == ir && DefaultSerializerConfiguration.TYPE.equals(context))
+            return true;
+        return ir == (ir & SUPPORT_PROPERTIES);
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Creates and returns the property model for configuring this reader.
+     *
+     * @param object
+     *            The serializer descriptor, used to provide context
+     * @param context
+     *            Additional context information, particularly for preferences
+     * @return The property model containing all configurable properties for this reader
+     */
+    static public IPropertyModel getPropertyModel(ISerializerDescriptor object, Object context) {
+        return IParsingRecordReader.getPropertyModel(PROP_NONE).add("channels", 1, null, null, null, "Channels", null, "Number of interleaved channels")
+                .add("period", "1ns", null, null, "Sample Period", null, "Time between two frames (e.g. 1ns for 1 GS/s)")
+                .add(Decimator.getPropertyModel())
+                .add(ConfiguredConsoleStream.getPropertyModel());
+    }
+
+    // ========================================================================================================================
+    // Applicable
+    // ========================================================================================================================
+
+    /**
+     * Determines if this reader can process the specified input. Raw captures have no header, so this reader is
+     * never selected automatically.
+     *
+     * @param name
+     *            The name of the file or content
+     * @param contentType
+     *            The MIME type or other format descriptor
+     * @param cellType
+     *            The expected type of cell to be produced
+     * @param inputRequest
+     *            Interface for examining the beginning of the input
+     * @return NOT_APPLICABLE
+     */
+    @Override
+    public int isApplicable(String name, String contentType, String cellType, IInputRequest inputRequest) {
+        return NOT_APPLICABLE;
+    }
+
+    // ========================================================================================================================
+    // Parser
+    // ========================================================================================================================
+
+    /**
+     * Parses the capture and writes one integer signal per channel.
+     *
+     * @param progress
+     *            Interface for reporting progress and checking for cancellation
+     * @param in
+     *            The input stream containing the capture
+     * @throws ParseException
+     *             If an error occurs during parsing
+     */
+    @Override
+    public void parse(IProgress progress, InputStream in) throws ParseException {
+
+        long frames = 0;
+        long rate = 1;
+        Decimator[] decimators = null;
+        try {
+
+            // console
+            IConsoleStream console = new ConfiguredConsoleStream(Ide.DEFAULT_CONSOLE, ConfiguredConsoleStream.logging(getProperties()));
+
+            // properties
+            int channels = Math.max(1, getTypedProperty("channels", Integer.class));
+            DomainValue period = DomainValue.parse(getProperty("period"));
+            if (period == null || period.longMultiple() <= 0)
+                throw new ParseException("Invalid sample period: " + getProperty("period"));
+            rate = period.longMultiple();
+
+            // create record, decimators open the writers with the decimated rate
+            initRecord("ADC", period.base());
+            decimators = new Decimator[channels];
+            for (int n = 0; n < channels; n++) {
+                IRecord.Signal signal = addSignal(null, "ch" + n, null, null, ISample.DATA_TYPE_INTEGER, -1, ISamples.FORMAT_DEFAULT);
+                decimators[n] = Decimator.create(getProperties(), getWriter(signal), "ch" + n);
+                decimators[n].open(0, rate);
+            }
+            console.info(this.getId(), "channels", channels, "rate", rate, "decimation", decimators[0].getMode(), "factor", decimators[0].getFactor());
+            changed(CHANGED_RECORD);
+
+            // open
+            open(0);
+            changed(CHANGED_CURRENT, 0);
+            FlushScheduler scheduler = new FlushScheduler(position -> {
+                changed(CHANGED_SIGNALS, position);
+                flushAndSetProgress(progress);
+            });
+
+            // read whole frames
+            int frameSize = 2 * channels;
+            byte[] buffer = new byte[Math.max(1, (1 << 16) / frameSize) * frameSize];
+            int filled = 0;
+            int read;
+            while ((read = in.read(buffer, filled, buffer.length - filled)) >= 0) {
+                if (progress != null && progress.isCanceled())
+                    break;
+                filled += read;
+                int end = filled - filled % frameSize;
+                for (int offset = 0; offset < end; offset += frameSize, frames++) {
+                    long position = frames * rate;
+                    for (int n = 0; n < channels; n++) {
+                        int o = offset + 2 * n;
+                        decimators[n].write(position, false, (long) (short) ((buffer[o] & 0xff) | buffer[o + 1] << 8));
+                    }
+                }
+                System.arraycopy(buffer, end, buffer, 0, filled - end);
+                filled -= end;
+
+                // flush
+                scheduler.maybeFlush(frames * rate, read);
+            }
+            scheduler.flush();
+
+        } catch (ParseException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ParseException(e.getMessage(), e);
+        } finally {
+
+            // close (writes the last partial buckets)
+            if (decimators != null) {
+                for (Decimator decimator : decimators)
+                    if (decimator != null)
+                        decimator.close(frames * rate);
+                close(frames * rate);
+            }
+            try {
+                in.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+}
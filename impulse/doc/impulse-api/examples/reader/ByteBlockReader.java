@@ -2,13 +2,19 @@ package de.toem.impulse.serializer.templates;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 
 import de.toem.impulse.cells.record.IRecord;
 import de.toem.impulse.samples.IBinarySamplesWriter;
 import de.toem.impulse.samples.ISample;
 import de.toem.impulse.samples.ISamples;
+import de.toem.impulse.samples.Instrumentation;
 import de.toem.impulse.samples.domain.TimeBase;
 import de.toem.impulse.serializer.AbstractSingleDomainRecordReader;
+import de.toem.impulse.serializer.ChangeAccumulator;
+import de.toem.impulse.serializer.FlushScheduler;
+import de.toem.impulse.serializer.IChannelRecordReader;
 import de.toem.impulse.serializer.IParsingRecordReader;
 import de.toem.toolkits.core.Utils;
 import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
@@ -34,9 +40,11 @@ import de.toem.toolkits.utils.serializer.ParseException;
  * - Implementing format detection logic in the isApplicable method 
  * - Setting up a record structure with signals to hold the processed data 
  * - Reading blocks of data from an input stream with configurable block size 
+ * - Reading from memory-mapped file windows if the input is a file (see IChannelRecordReader) 
  * - Writing binary data to a signal using a samples writer 
  * - Handling timing using a microsecond time base 
  * - Tracking progress and supporting cancelation 
+ * - Optional instrumentation (counters, see Instrumentation; flush events are recorded by the FlushScheduler) 
  * - Proper resource cleanup in error handling scenarios
  *
  * This class can be used as a starting point for developing readers that process binary data formats, and serves as an educational example of
@@ -54,7 +62,7 @@ import de.toem.toolkits.utils.serializer.ParseException;
  * 
  * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 301
  */
-public class ByteBlockReader extends AbstractSingleDomainRecordReader {
+public class ByteBlockReader extends AbstractSingleDomainRecordReader implements IChannelRecordReader {
 
     // ========================================================================================================================
     // Content
@@ -124,7 +132,7 @@ public class ByteBlockReader extends AbstractSingleDomainRecordReader {
         int ir = request instanceof Integer ? ((Integer) request).intValue() : -1;
         if (SUPPORT_CONFIGURATION == ir && DefaultSerializerConfiguration.TYPE.equals(context))
             return true;
-        return ir == (ir & SUPPORT_PROPERTIES);
+        return ir == (ir & (SUPPORT_PROPERTIES | SUPPORT_CHANNEL));
     }
 
     // ========================================================================================================================
@@ -213,6 +221,37 @@ public class ByteBlockReader extends AbstractSingleDomainRecordReader {
      */
     @Override
     public void parse(IProgress progress, InputStream in) throws ParseException {
+        SeekableByteChannel channel = IChannelRecordReader.channel(in);
+        try {
+            parse(progress, channel == null ? in : null, channel);
+        } finally {
+            // the stream owns the channel of a file stream
+            try {
+                in.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Parses the input channel and creates a record with binary signal data.
+     * 
+     * Same as the stream based parser, but the blocks are taken from memory-mapped windows of the file
+     * instead of stream reads. The writer still copies each block into its packed samples.
+     * 
+     * @param progress
+     *            Interface for reporting progress and checking for cancellation
+     * @param channel
+     *            The channel containing the data to be read
+     * @throws ParseException
+     *             If an error occurs during parsing
+     */
+    @Override
+    public void parse(IProgress progress, SeekableByteChannel channel) throws ParseException {
+        parse(progress, null, channel);
+    }
+
+    private void parse(IProgress progress, InputStream in, SeekableByteChannel channel) throws ParseException {
 
         int bytesProcessed = 0;
         long started = 0;
@@ -231,32 +270,56 @@ public class ByteBlockReader extends AbstractSingleDomainRecordReader {
             initRecord("Bytes", TimeBase.us);
             IRecord.Signal bytesSignal = addSignal(base, "Bytes", null, null, ISample.DATA_TYPE_BINARY, -1, ISamples.FORMAT_DEFAULT);
             IBinarySamplesWriter bytesWriter = ((IBinarySamplesWriter) getWriter(bytesSignal));
+            Instrumentation.Counters counters = Instrumentation.ENABLED ? Instrumentation.counters("Bytes") : null;
             changed(CHANGED_RECORD);
 
             // open
             open(current);
             changed(CHANGED_CURRENT, current);
 
+            // flush by time and bytes, the changes of all samples are coalesced and forwarded at most 10 times per second
+            ChangeAccumulator changes = new ChangeAccumulator(this);
+            FlushScheduler scheduler = new FlushScheduler(position -> {
+                changes.drain();
+                flushAndSetProgress(progress);  // Periodically flush data and update progress
+            });
+
             // read
             byte[] bytes = new byte[size];
-            int read, n = 0;
-            while ((read = in.read(bytes)) >= 0 && (progress == null || !progress.isCanceled())) {
+            int window = Math.max(1, IChannelRecordReader.DEFAULT_WINDOW / size) * size;  // Blocks do not cross windows
+            long offset = channel != null ? channel.position() : 0;
+            ByteBuffer mapped = null;
+            int read;
+            while (true) {
+                if (channel != null) {
+                    if (mapped == null || !mapped.hasRemaining()) {
+                        mapped = IChannelRecordReader.map(channel, offset, window);
+                        offset += mapped.remaining();
+                    }
+                    read = Math.min(bytes.length, mapped.remaining());
+                    mapped.get(bytes, 0, read);
+                    if (read == 0)
+                        read = -1;
+                } else
+                    read = in.read(bytes);
+                if (read < 0 || (progress != null && progress.isCanceled()))
+                    break;
                 if (read <= 0)
                     continue;
-                if (read < bytes.length) {
-                    byte[] buffer = new byte[read];
-                    System.arraycopy(bytes, 0, buffer, 0, read);
-                    bytes = buffer;
-                }
                 current = (Utils.millies() - started) * 1000;  // Convert elapsed milliseconds to microseconds
-                bytesWriter.write(current, false, bytes);
+                bytesWriter.write(current, false, bytes, 0, read);
+                changes.changed(CHANGED_SIGNALS, current);
                 bytesProcessed += read;
-                changed(CHANGED_SIGNALS, current);
+                if (Instrumentation.ENABLED) {
+                    counters.increment(Instrumentation.SAMPLES_WRITTEN);
+                    counters.add(Instrumentation.BYTES_PACKED, read);
+                }
 
                 // flush
-                if ((n++ % 100) == 0)
-                    flushAndSetProgress(progress);  // Periodically flush data and update progress
+                scheduler.maybeFlush(current, read);
             }
+            scheduler.flush();
+            changes.drain(true);
 
         } catch (IOException e) {
             // For this example reader, we simply ignore IO exceptions that might occur during reading
@@ -269,10 +332,6 @@ public class ByteBlockReader extends AbstractSingleDomainRecordReader {
 
             // close
             close(current + 1);
-            try {
-                in.close();
-            } catch (IOException e) {
-            }
         }
 
     }
@@ -14,6 +14,7 @@ import de.toem.impulse.samples.IBinarySamplesWriter;
 import de.toem.impulse.samples.ISample;
 import de.toem.impulse.samples.domain.TimeBase;
 import de.toem.impulse.serializer.AbstractSingleDomainRecordReader;
+import de.toem.impulse.serializer.FlushScheduler;
 import de.toem.impulse.serializer.IParsingRecordReader;
 import de.toem.toolkits.core.Utils;
 import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
@@ -177,7 +178,8 @@ public class GifReader extends AbstractSingleDomainRecordReader {
      */
     @Override
     public int isApplicable(String name, String contentType, String cellType, IInputRequest inputRequest) {
-        return inputRequest.text(3).contains("GIF") ? APPLICABLE : NOT_APPLICABLE;
+        byte[] header = inputRequest.bytes(3);
+        return header != null && header.length == 3 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' ? APPLICABLE : NOT_APPLICABLE;
     }
 
     // ========================================================================================================================
@@ -236,7 +238,10 @@ public class GifReader extends AbstractSingleDomainRecordReader {
             reader.setInput(stream);
 
             int count = reader.getNumImages(true);  // Get total number of frames in the GIF
-            int n=0;
+            FlushScheduler scheduler = new FlushScheduler(position -> {
+                changed(CHANGED_SIGNALS, position);
+                flushAndSetProgress(progress);
+            });
             for (int index = 0; index < count; index++) {
                 BufferedImage frame = reader.read(index);  // Read current frame
                 ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -244,13 +249,12 @@ public class GifReader extends AbstractSingleDomainRecordReader {
                 byte[] bytes = baos.toByteArray();
                 imageWriter.write(current = index * 10, false, bytes);  // Store with timestamp (10ms per frame)
                 imagesProcessed = index;
-                changed(CHANGED_SIGNALS, current);
                 
                 // flush
-                if ((n++ % 100) == 0)
-                    flushAndSetProgress(progress);  // Update progress every 100 frames
+                scheduler.maybeFlush(current, bytes.length);  // Update progress by time and image bytes
                 
             }
+            scheduler.flush();
         } catch (IOException e) {
             // For this example reader, we simply ignore IO exceptions that might occur during reading
             // In a production reader, you would typically log the exception and potentially rethrow it
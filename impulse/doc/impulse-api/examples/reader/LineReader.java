@@ -11,8 +11,10 @@ import de.toem.impulse.samples.ISamples;
 import de.toem.impulse.samples.ITextSamplesWriter;
 import de.toem.impulse.samples.domain.TimeBase;
 import de.toem.impulse.serializer.AbstractSingleDomainRecordReader;
+import de.toem.impulse.serializer.FlushScheduler;
 import de.toem.impulse.serializer.IParsingRecordReader;
 import de.toem.toolkits.core.Utils;
+import de.toem.toolkits.pattern.element.producer.ICellProducer.ITelemetry;
 import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
 import de.toem.toolkits.pattern.element.serializer.SingletonSerializerPreference.DefaultSerializerConfiguration;
 import de.toem.toolkits.pattern.ide.ConfiguredConsoleStream;
@@ -36,6 +38,7 @@ import de.toem.toolkits.utils.serializer.ParseException;
  * - Processing text input line by line for efficient text file handling
  * - Creating a time-based signal with text samples
  * - Implementing proper progress tracking and cancellation support
+ * - Reporting live metrics (bytes consumed, samples, position) to a telemetry capable progress
  * - Handling timing using a microsecond time base
  * - Error handling with appropriate exception details
  *
@@ -50,7 +53,7 @@ import de.toem.toolkits.utils.serializer.ParseException;
  * - Each non-empty line becomes a text sample in the signal
  * - The timestamp for each sample represents the elapsed processing time in microseconds
  * - Empty lines are automatically filtered out
- * - Progress is reported periodically during reading to support UI feedback
+ * - Progress is reported periodically during reading to support UI feedback (by time, see FlushScheduler)
  * - Error handling includes proper resource cleanup and meaningful exception details
  * 
  * Copyright (c) 2013-2025 Thomas Haber
@@ -69,6 +72,11 @@ public class LineReader extends AbstractSingleDomainRecordReader {
      */
     private int linesProcessed;
     
+    /**
+     * Number of lines already reported to the progress telemetry.
+     */
+    private int linesReported;
+    
     /**
      * Reference to the signal created for storing line data.
      * Stored as a field to enable access from multiple methods.
@@ -221,7 +229,8 @@ public class LineReader extends AbstractSingleDomainRecordReader {
     @Override
     protected void parse(IProgress progress, InputStream in) throws ParseException {
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ITelemetry.track(progress, in)));
+        ITelemetry telemetry = progress instanceof ITelemetry ? (ITelemetry) progress : null;
         long current = 0;
         
         try {
@@ -240,21 +249,30 @@ public class LineReader extends AbstractSingleDomainRecordReader {
             open(current);
             changed(CHANGED_CURRENT, current);
 
+            // flush by time (at most every 250ms), changes are coalesced
+            FlushScheduler scheduler = new FlushScheduler(position -> {
+                changed(CHANGED_SIGNALS, position);
+                if (telemetry != null) {
+                    telemetry.produced(linesProcessed - linesReported);  // Report samples and position for live metrics
+                    telemetry.position(position, Long.MIN_VALUE);
+                    linesReported = linesProcessed;
+                }
+                flushAndSetProgress(progress);
+            });
+
             // read, parse, add samples
             String line;
-            int n=0;
             while ((line = reader.readLine()) != null && (progress == null || !progress.isCanceled())) {
                 if (line.trim().isEmpty())
                     continue;  // Skip empty lines
                 current = (Utils.millies() - started)*1000;  // Convert elapsed milliseconds to microseconds
                 ((ITextSamplesWriter) getWriter(signal)).write(current, false, line);
                 linesProcessed++;
-                changed(CHANGED_SIGNALS, current);
                 
                 // flush
-                if ((n++ % 100) == 0)
-                    flushAndSetProgress(progress);  // Update progress every 100 lines
+                scheduler.maybeFlush(current);
             }
+            scheduler.flush();
             
         } catch (IOException e) {
             // For this example reader, we simply ignore IO exceptions that might occur during reading
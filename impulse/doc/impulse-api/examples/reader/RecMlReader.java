@@ -0,0 +1,521 @@
+package de.toem.impulse.serializer.templates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import de.toem.impulse.cells.record.IRecord;
+import de.toem.impulse.cells.record.RecordSignal;
+import de.toem.impulse.samples.ChangeCompactor;
+import de.toem.impulse.samples.IMemberDescriptor;
+import de.toem.impulse.samples.IReadableSamples;
+import de.toem.impulse.samples.ISample;
+import de.toem.impulse.samples.ISamplePack;
+import de.toem.impulse.samples.ISamplesLegend;
+import de.toem.impulse.samples.ISamplesWriter;
+import de.toem.impulse.samples.Instrumentation;
+import de.toem.impulse.samples.base.PackedSamples;
+import de.toem.impulse.samples.compound.PackedSample;
+import de.toem.impulse.samples.domain.DomainBases;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.impulse.samples.domain.TimeBase;
+import de.toem.impulse.samples.raw.Enumeration;
+import de.toem.impulse.serializer.AbstractXmlRecordReader;
+import de.toem.impulse.serializer.FlushScheduler;
+import de.toem.impulse.serializer.IParsingRecordReader;
+import de.toem.impulse.serializer.ImportFilter;
+import de.toem.toolkits.core.Utils;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.element.producer.ICellProducer.ITelemetry;
+import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
+import de.toem.toolkits.pattern.element.serializer.SingletonSerializerPreference.DefaultSerializerConfiguration;
+import de.toem.toolkits.pattern.ide.ConfiguredConsoleStream;
+import de.toem.toolkits.pattern.ide.IConsoleStream;
+import de.toem.toolkits.pattern.ide.Ide;
+import de.toem.toolkits.pattern.pageable.BytesPageable;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+import de.toem.toolkits.utils.serializer.ParseException;
+
+/**
+ * Example implementation of a streaming record reader for uncompressed XML records (recMl).
+ *
+ * The generic XML reader first builds the complete cell tree of the file (including the sample pages of all
+ * signals) and creates the record afterwards. The RecMlReader parses the file with SAX instead and writes each
+ * signal into the record as soon as its element is complete: the sample pages of the signal are decoded, copied
+ * into the signal writer as packed samples (without decoding values) and released. Only the pages of one signal
+ * are held at a time, and the first signals are visible while the rest of the file is still parsed.
+ *
+ * Key features demonstrated by this example:
+ * - Extending AbstractXmlRecordReader and handling SAX events
+ * - Creating scopes and signals incrementally (signals are opened when added after open)
+ * - Restoring packed sample pages with PackedSamples.createReader and ISamplesWriter.writeSample
+ * - Flushing by time with the FlushScheduler
+ * - Import filters (PROP_INCLUDE, PROP_RANGE): filtered scopes and signals are skipped without decoding
+ * - Change-only import with the ChangeCompactor (repeated samples are dropped while copying)
+ *
+ * Implementation Notes:
+ * - The record domain base is the base of the first signal; scopes are created once the record exists
+ * - Signals with another domain base are opened and closed individually
+ * - Proxies, relations and sample attachments are not restored
+ *
+ * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 321
+ */
+public class RecMlReader extends AbstractXmlRecordReader {
+
+    // ========================================================================================================================
+    // Content
+    // ========================================================================================================================
+
+    private static final String RECORD = "record";
+    private static final String SCOPE = "record.scope";
+    private static final String SIGNAL = "record.signal";
+    private static final String SAMPLES = "samples";
+    private static final String LEGEND = "legend";
+    private static final String ITEM = "it";
+
+    /**
+     * Scope element; the scope cell is created when the first signal below it (or the record) exists.
+     */
+    private static class Scope {
+        final Scope parent;
+        final String name;
+        final String description;
+        final String tags;
+        final List<String> path;
+        ICell cell;
+
+        Scope(Scope parent, Attributes attributes) {
+            this.parent = parent;
+            this.name = attributes.getValue("name");
+            this.description = attributes.getValue("description");
+            this.tags = attributes.getValue("tags");
+            this.path = new ArrayList<>(parent != null ? parent.path : Collections.emptyList());
+            this.path.add(name);
+        }
+    }
+
+    private final ArrayDeque<Scope> scopes = new ArrayDeque<>();
+    private final List<Scope> deferred = new ArrayList<>();
+    private String recordName;
+    private IDomainBase recordBase;
+    private boolean initialized;
+    private long start;
+    private long end = Long.MIN_VALUE;
+    private int signals;
+    private int filtered;
+    private ImportFilter filter = ImportFilter.ALL;
+    private boolean changeOnly;
+    private int skip; // depth inside a filtered element
+
+    // signal element in progress
+    private RecordSignal pending;
+    private String name;
+    private String description;
+    private String tags;
+    private BytesPageable pages;
+    private int page;
+    private StringBuilder text;
+
+    private IProgress progress;
+    private ITelemetry telemetry;
+    private FlushScheduler scheduler;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor for the RecMlReader.
+     */
+    public RecMlReader() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor for the RecMlReader.
+     *
+     * @param descriptor
+     *            The serializer descriptor providing contextual information
+     * @param contentName
+     *            The name of the content being processed
+     * @param contentType
+     *            The MIME type or other format descriptor of the content
+     * @param cellType
+     *            The type of cell that will be produced
+     * @param configuration
+     *            Configuration name for specialized settings
+     * @param properties
+     *            Additional properties as key-value pairs
+     * @param in
+     *            The input stream containing the data to be read
+     */
+    public RecMlReader(ISerializerDescriptor descriptor, String contentName, String contentType, String cellType, String configuration,
+            String[][] properties, InputStream in) {
+        super(descriptor, configuration, properties, getPropertyModel(descriptor, null), in);
+    }
+
+    // ========================================================================================================================
+    // Supports
+    // ========================================================================================================================
+
+    /**
+     * Determines if this reader supports the specified functionality request.
+     *
+     * @param request
+     *            An Integer identifying the functionality being queried (usually one of the SUPPORT_* constants)
+     * @param context
+     *            Additional context for the request, typically a configuration type string
+     * @return true if the reader supports the requested functionality, false otherwise
+     */
+    public static boolean supports(Object request, Object context) {
+        int ir = request instanceof Integer ? ((Integer) request).intValue() : -1;
+        if (SUPPORT_CONFIGURATION == ir && DefaultSerializerConfiguration.TYPE.equals(context))
+            return true;
+        return ir == (ir & SUPPORT_PROPERTIES);
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Creates and returns the property model for configuring this reader.
+     *
+     * @param object
+     *            The serializer descriptor, used to provide context
+     * @param context
+     *            Additional context information, particularly for preferences
+     * @return The property model containing all configurable properties for this reader
+     */
+    static public IPropertyModel getPropertyModel(ISerializerDescriptor object, Object context) {
+        return IParsingRecordReader.getPropertyModel(PROP_INCLUDE | PROP_RANGE)
+                .add("changeOnly", false, null, "Change Only", null, "Drop samples that equal their predecessor (value, tag and attachments)")
+                .add(ConfiguredConsoleStream.getPropertyModel());
+    }
+
+    // ========================================================================================================================
+    // Applicable
+    // ========================================================================================================================
+
+    /**
+     * Determines if this reader can process the specified input.
+     *
+     * recMl files are XML documents with a record root element.
+     *
+     * @param name
+     *            The name of the file or content
+     * @param contentType
+     *            The MIME type or other format descriptor
+     * @param cellType
+     *            The expected type of cell to be produced
+     * @param inputRequest
+     *            Interface for examining the beginning of the input
+     * @return APPLICABLE if this reader can process the input, NOT_APPLICABLE otherwise
+     */
+    @Override
+    public int isApplicable(String name, String contentType, String cellType, IInputRequest inputRequest) {
+        String header = inputRequest.text(1024);
+        if (header == null || !header.startsWith("<?xml"))
+            return NOT_APPLICABLE;
+        int root = header.indexOf("?>");
+        return root > 0 && header.substring(root + 2).trim().startsWith("<" + RECORD) ? APPLICABLE : NOT_APPLICABLE;
+    }
+
+    // ========================================================================================================================
+    // Parser
+    // ========================================================================================================================
+
+    /**
+     * Parses the XML document with SAX. Errors are reported with the line of the document.
+     *
+     * @param progress
+     *            Interface for reporting progress and checking for cancellation
+     * @param in
+     *            The input stream containing the XML document
+     * @throws ParseException
+     *             If the document cannot be parsed
+     */
+    @Override
+    protected void parse(IProgress progress, InputStream in) throws ParseException {
+        IConsoleStream console = new ConfiguredConsoleStream(Ide.DEFAULT_CONSOLE, ConfiguredConsoleStream.logging(getProperties()));
+        this.progress = progress;
+        this.telemetry = progress instanceof ITelemetry ? (ITelemetry) progress : null;
+        this.filter = ImportFilter.create(getProperties());
+        this.changeOnly = Boolean.TRUE.equals(getTypedProperty("changeOnly", Boolean.class));
+        this.scheduler = new FlushScheduler(position -> {
+            changed(CHANGED_SIGNALS, position);
+            flushAndSetProgress(progress);
+        });
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setValidating(false);
+            factory.newSAXParser().parse(ITelemetry.track(progress, in), new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    RecMlReader.this.startElement(uri, localName, qName, attributes);
+                }
+
+                @Override
+                public void endElement(String uri, String localName, String qName) {
+                    RecMlReader.this.endElement(uri, localName, qName);
+                }
+
+                @Override
+                public void characters(char[] ch, int start, int length) {
+                    RecMlReader.this.characters(ch, start, length);
+                }
+            });
+            scheduler.flush();
+            console.info(this.getId(), "signals", signals, "filtered", filtered);
+        } catch (SAXParseException e) {
+            if (progress == null || !progress.isCanceled())
+                throw new ParseException(e.getLineNumber(), e.getMessage(), e);
+        } catch (Throwable e) {
+            if (progress == null || !progress.isCanceled())
+                throw new ParseException(e.getMessage(), e);
+        } finally {
+            if (initialized)
+                close(end != Long.MIN_VALUE ? end : start);
+            pending = null;
+            pages = null;
+            try {
+                in.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    @Override
+    public void startDocument() {
+    }
+
+    @Override
+    public void endDocument() {
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        if (progress != null && progress.isCanceled())
+            throw new IllegalStateException("Canceled");
+        if (skip > 0) {
+            skip++;
+            return;
+        }
+        switch (qName) {
+        case RECORD:
+            recordName = attributes.getValue("name");
+            break;
+        case SCOPE:
+            Scope scope = new Scope(scopes.peek(), attributes);
+            if (filter.isExcluded(scope.path.toArray(new String[scope.path.size()])))
+                skip = 1;
+            else
+                scopes.push(scope);
+            break;
+        case SIGNAL:
+            name = attributes.getValue("name");
+            if (!filter.accepts(scopes.isEmpty() ? Collections.emptyList() : scopes.peek().path, name)) {
+                // filtered signals are neither created nor decoded
+                filtered++;
+                skip = 1;
+                break;
+            }
+            pending = new RecordSignal();
+            description = attributes.getValue("description");
+            tags = attributes.getValue("tags");
+            pending.sampleType = Utils.parseInt(attributes.getValue("sampleType"), pending.sampleType);
+            pending.scale = Utils.parseInt(attributes.getValue("scale"), pending.scale);
+            pending.count = Utils.parseInt(attributes.getValue("count"), pending.count);
+            pending.start = Utils.parseLong(attributes.getValue("start"), pending.start);
+            pending.end = Utils.parseLong(attributes.getValue("end"), pending.end);
+            pending.rate = Utils.parseLong(attributes.getValue("rate"), pending.rate);
+            if (attributes.getValue("format") != null)
+                pending.format = attributes.getValue("format");
+            if (attributes.getValue("domainBase") != null)
+                pending.domainBase = attributes.getValue("domainBase");
+            break;
+        case SAMPLES:
+        case LEGEND:
+            if (pending != null) {
+                pages = new BytesPageable(Utils.parseInt(attributes.getValue("len"), 0));
+                page = 0;
+                text = new StringBuilder();
+            }
+            break;
+        case ITEM:
+            if (text != null)
+                text.setLength(0);
+            break;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (text != null)
+            text.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (skip > 0) {
+            skip--;
+            return;
+        }
+        switch (qName) {
+        case ITEM:
+            if (pages != null)
+                pages.setChars(page++, chars(text));
+            break;
+        case SAMPLES:
+        case LEGEND:
+            if (pages != null) {
+                if (page == 0 && text.length() > 0)
+                    pages.setChars(0, chars(text));
+                if (SAMPLES.equals(qName))
+                    pending.samples = pages;
+                else
+                    pending.legend = pages;
+                pages = null;
+                text = null;
+            }
+            break;
+        case SIGNAL:
+            if (pending != null)
+                addSignal(pending);
+            pending = null;
+            break;
+        case SCOPE:
+            Scope scope = scopes.pop();
+            if (!filter.isEmpty())
+                break; // with filters, scopes are only created for imported signals
+            if (initialized)
+                create(scope);
+            else if (scope.cell == null)
+                deferred.add(scope);
+            break;
+        case RECORD:
+            if (!initialized)
+                initialize(TimeBase.ns);
+            break;
+        }
+    }
+
+    // ========================================================================================================================
+    // Record
+    // ========================================================================================================================
+
+    private void initialize(IDomainBase domainBase) {
+        initRecord(recordName != null ? recordName : "Record", domainBase);
+        recordBase = domainBase;
+        initialized = true;
+        for (Scope scope : deferred)
+            create(scope);
+        deferred.clear();
+        changed(CHANGED_RECORD);
+    }
+
+    private ICell create(Scope scope) {
+        if (scope.cell == null)
+            scope.cell = addScope(scope.parent != null ? create(scope.parent) : null, scope.name, scope.description, scope.tags);
+        return scope.cell;
+    }
+
+    private void addSignal(RecordSignal source) {
+        IDomainBase domainBase = source.domainBase != null ? DomainBases.parse(source.domainBase) : null;
+        if (!initialized)
+            initialize(domainBase != null ? domainBase : TimeBase.ns);
+        ICell container = scopes.isEmpty() ? null : create(scopes.peek());
+        IRecord.Signal signal = domainBase != null
+                ? addSignal(container, name, description, tags, source.sampleType, source.scale, source.format, domainBase)
+                : addSignal(container, name, description, tags, source.sampleType, source.scale, source.format);
+        ISamplesWriter writer = getWriter(signal);
+        boolean foreign = domainBase != null && !domainBase.equals(recordBase);
+
+        // domain window [from, to) in units of the signal domain base
+        long from = Math.max(source.start, filter.from(foreign ? domainBase : recordBase));
+        long to = Math.max(from, Math.min(source.end, filter.to(foreign ? domainBase : recordBase)));
+        if (!foreign && !opened) {
+            start = from;
+            open(start);
+            changed(CHANGED_CURRENT, start);
+        }
+        if (!writer.isOpen())
+            writer.open(from);
+
+        // copy the packed samples, the pages are released with the source signal
+        IReadableSamples samples = source.samples != null ? (IReadableSamples) PackedSamples.createReader(source) : null;
+        if (samples != null)
+            copyLegend(samples.getLegend(), writer);
+        int count = samples != null ? samples.getCount() : 0;
+        int first = from > source.start && count > 0 ? Math.max(Instrumentation.indexAt(samples, from, null), 0) : 0;
+        ChangeCompactor compactor = changeOnly ? new ChangeCompactor(writer) : null;
+        int written = 0;
+        for (int idx = first; idx < count; idx++) {
+            ISamplePack pack = samples.packedAt(idx, 0);
+            long position = pack.getPositionAsMultiple();
+            if (position >= to && to < source.end)
+                break;
+            // the sample valid at the window start is moved to the start
+            if (position < from) {
+                PackedSample moved = new PackedSample(pack);
+                moved.setUnits(from);
+                pack = moved;
+            }
+            if (compactor != null ? compactor.writeSample(pack) : writer.writeSample(pack))
+                written++;
+        }
+        signals++;
+        if (foreign)
+            writer.close(to);
+        else
+            end = Math.max(end, to);
+
+        if (telemetry != null)
+            telemetry.produced(written);
+        // signals arrive one after another, each covering its full range - the record stays current at its start
+        scheduler.maybeFlush(start);
+    }
+
+    private static void copyLegend(ISamplesLegend legend, ISamplesWriter writer) {
+        if (legend == null)
+            return;
+        List<IMemberDescriptor> members = legend.getMembers();
+        if (members != null)
+            for (IMemberDescriptor member : members) {
+                writer.setMember(member.getNId(), member.getParentNId(), member.getLabel(), member.getDescription(), member.getIconId(),
+                        member.getTags(), member.getSampleType(), member.getScale(), member.getFormat());
+                List<Enumeration> enums = legend.getMemberEnums(member.getNId());
+                if (enums != null)
+                    for (Enumeration e : enums)
+                        writer.setMemberEnum(member.getNId(), e.value, e.label);
+            }
+        for (int domain = ISample.ENUM_MIN; domain < ISample.ENUM_MEMBER_0; domain++) {
+            List<Enumeration> enums = legend.getEnums(domain);
+            if (enums != null)
+                for (Enumeration e : enums)
+                    writer.setEnum(domain, e.value, e.label);
+        }
+    }
+
+    private static char[] chars(StringBuilder text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ')
+            start++;
+        while (end > start && text.charAt(end - 1) <= ' ')
+            end--;
+        char[] chars = new char[end - start];
+        text.getChars(start, end, chars, 0);
+        return chars;
+    }
+}
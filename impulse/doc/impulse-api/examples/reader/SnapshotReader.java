@@ -0,0 +1,186 @@
+package de.toem.impulse.serializer.templates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+
+import de.toem.impulse.serializer.AbstractSingleDomainRecordReader;
+import de.toem.impulse.serializer.IChannelRecordReader;
+import de.toem.impulse.serializer.IParsingRecordReader;
+import de.toem.impulse.serializer.RecordSnapshot;
+import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
+import de.toem.toolkits.pattern.element.serializer.SingletonSerializerPreference.DefaultSerializerConfiguration;
+import de.toem.toolkits.pattern.ide.ConfiguredConsoleStream;
+import de.toem.toolkits.pattern.ide.IConsoleStream;
+import de.toem.toolkits.pattern.ide.Ide;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+import de.toem.toolkits.utils.serializer.ParseException;
+
+/**
+ * Example implementation of a record reader for binary record snapshots.
+ *
+ * The SnapshotReader restores a record that was written by the SnapshotWriter (or cached with RecordSnapshot.save).
+ * Instead of parsing the original source again (e.g. a large text trace), it reads the directory of the snapshot
+ * and copies the packed samples of each signal from memory-mapped windows into the signal writers, without
+ * decoding values.
+ *
+ * Key features demonstrated by this example:
+ * - Detecting a binary format by its magic bytes in the isApplicable method
+ * - Reading from a SeekableByteChannel (see IChannelRecordReader)
+ * - Delegating record creation to a format helper (RecordSnapshot)
+ *
+ * Implementation Notes:
+ * - Snapshots require random access; stream inputs that are not backed by a file are rejected
+ * - Signals keep their own domain bases; the record domain base is the base of the first signal
+ *
+ * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 313
+ */
+public class SnapshotReader extends AbstractSingleDomainRecordReader implements IChannelRecordReader {
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor for the SnapshotReader.
+     */
+    public SnapshotReader() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor for the SnapshotReader.
+     *
+     * @param descriptor
+     *            The serializer descriptor providing contextual information
+     * @param contentName
+     *            The name of the content being processed
+     * @param contentType
+     *            The MIME type or other format descriptor of the content
+     * @param cellType
+     *            The type of cell that will be produced
+     * @param configuration
+     *            Configuration name for specialized settings
+     * @param properties
+     *            Additional properties as key-value pairs
+     * @param in
+     *            The input stream containing the data to be read
+     */
+    public SnapshotReader(ISerializerDescriptor descriptor, String contentName, String contentType, String cellType, String configuration,
+            String[][] properties, InputStream in) {
+        super(descriptor, configuration, properties, getPropertyModel(descriptor, null), in);
+    }
+
+    // ========================================================================================================================
+    // Supports
+    // ========================================================================================================================
+
+    /**
+     * Determines if this reader supports the specified functionality request.
+     *
+     * @param request
+     *            An Integer identifying the functionality being queried (usually one of the SUPPORT_* constants)
+     * @param context
+     *            Additional context for the request, typically a configuration type string
+     * @return true if the reader supports the requested functionality, false otherwise
+     */
+    public static boolean supports(Object request, Object context) {
+        int ir = request instanceof Integer ? ((Integer) request).intValue() : -1;
+        if (SUPPORT_CONFIGURATION == ir && DefaultSerializerConfiguration.TYPE.equals(context))
+            return true;
+        return ir == (ir & (SUPPORT_PROPERTIES | SUPPORT_CHANNEL));
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Creates and returns the property model for configuring this reader.
+     *
+     * @param object
+     *            The serializer descriptor, used to provide context
+     * @param context
+     *            Additional context information, particularly for preferences
+     * @return The property model containing all configurable properties for this reader
+     */
+    static public IPropertyModel getPropertyModel(ISerializerDescriptor object, Object context) {
+        return IParsingRecordReader.getPropertyModel(PROP_NONE).add(ConfiguredConsoleStream.getPropertyModel());
+    }
+
+    // ========================================================================================================================
+    // Applicable
+    // ========================================================================================================================
+
+    /**
+     * Determines if this reader can process the specified input.
+     *
+     * Snapshots start with the magic bytes "IMPSNAP1".
+     *
+     * @param name
+     *            The name of the file or content
+     * @param contentType
+     *            The MIME type or other format descriptor
+     * @param cellType
+     *            The expected type of cell to be produced
+     * @param inputRequest
+     *            Interface for examining the beginning of the input
+     * @return APPLICABLE if this reader can process the input, NOT_APPLICABLE otherwise
+     */
+    @Override
+    public int isApplicable(String name, String contentType, String cellType, IInputRequest inputRequest) {
+        return RecordSnapshot.isSnapshot(inputRequest.bytes(8)) ? APPLICABLE : NOT_APPLICABLE;
+    }
+
+    // ========================================================================================================================
+    // Parser
+    // ========================================================================================================================
+
+    /**
+     * Parses the input stream. Snapshots are read from the channel of the file stream.
+     *
+     * @param progress
+     *            Interface for reporting progress and checking for cancellation
+     * @param in
+     *            The input stream containing the data to be read
+     * @throws ParseException
+     *             If the input is not a file or the snapshot cannot be read
+     */
+    @Override
+    protected void parse(IProgress progress, InputStream in) throws ParseException {
+        try {
+            SeekableByteChannel channel = IChannelRecordReader.channel(in);
+            if (channel == null)
+                throw new ParseException("Snapshots can only be read from files");
+            parse(progress, channel);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Restores the record from the snapshot.
+     *
+     * @param progress
+     *            Interface for reporting progress and checking for cancellation
+     * @param channel
+     *            The channel containing the snapshot
+     * @throws ParseException
+     *             If the snapshot cannot be read
+     */
+    @Override
+    public void parse(IProgress progress, SeekableByteChannel channel) throws ParseException {
+        IConsoleStream console = new ConfiguredConsoleStream(Ide.DEFAULT_CONSOLE, ConfiguredConsoleStream.logging(getProperties()));
+        try {
+            console.info(this.getId(), "snapshot", channel.size());
+        } catch (IOException e) {
+        }
+        RecordSnapshot.read(progress, this, channel);
+        changed(CHANGED_RECORD);
+        flushAndSetProgress(progress);
+    }
+}
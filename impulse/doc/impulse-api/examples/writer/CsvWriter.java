@@ -0,0 +1,193 @@
+package de.toem.impulse.serializer.templates;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.toem.impulse.cells.record.IRecord;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.impulse.serializer.ParallelExport;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.element.ICover;
+import de.toem.toolkits.pattern.element.serializer.AbstractCellWriter;
+import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
+import de.toem.toolkits.pattern.element.serializer.SingletonSerializerPreference.DefaultSerializerConfiguration;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.properties.PropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+
+/**
+ * Example implementation of a cell writer exporting signals as CSV.
+ *
+ * The CsvWriter writes one line per sample ("position,signal,value"), ordered by position across all signals.
+ * It demonstrates the parallel export path for time-ordered formats: the samples of each signal are formatted
+ * on worker threads (see ParallelExport), and the per-signal segments are merged by position.
+ *
+ * Key features demonstrated by this example:
+ * - Extending AbstractCellWriter to implement the ICellWriter interface
+ * - Collecting the signals below the exported cell
+ * - Formatting signals concurrently and merging them with ParallelExport.writeInterleaved
+ *
+ * Implementation Notes:
+ * - Positions are written as multiples of the finest domain base of the signals (see header line)
+ * - Values containing separators or quotes are quoted
+ *
+ * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 317
+ */
+public class CsvWriter extends AbstractCellWriter {
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor for the CsvWriter.
+     */
+    public CsvWriter() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor for the CsvWriter.
+     *
+     * @param descriptor
+     *            The serializer descriptor providing contextual information
+     * @param contentName
+     *            The name of the content being written
+     * @param contentType
+     *            The MIME type or other format descriptor of the content
+     * @param cellType
+     *            The type of cell to be written
+     * @param configuration
+     *            Configuration name for specialized settings
+     * @param properties
+     *            Additional properties as key-value pairs
+     * @param out
+     *            The output stream to write to
+     */
+    public CsvWriter(ISerializerDescriptor descriptor, String contentName, String contentType, String cellType, String configuration,
+            String[][] properties, OutputStream out) {
+        super(descriptor, configuration, properties, getPropertyModel(descriptor, null), out);
+    }
+
+    // ========================================================================================================================
+    // Supports
+    // ========================================================================================================================
+
+    /**
+     * Determines if this writer supports the specified functionality request.
+     *
+     * @param request
+     *            An Integer identifying the functionality being queried (usually one of the SUPPORT_* constants)
+     * @param context
+     *            Additional context for the request, typically a configuration type string
+     * @return true if the writer supports the requested functionality, false otherwise
+     */
+    public static boolean supports(Object request, Object context) {
+        int ir = request instanceof Integer ? ((Integer) request).intValue() : -1;
+        if (SUPPORT_CONFIGURATION == ir && DefaultSerializerConfiguration.TYPE.equals(context))
+            return true;
+        return false;
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Creates and returns the property model for configuring this writer (no properties).
+     *
+     * @param object
+     *            The serializer descriptor, used to provide context
+     * @param context
+     *            Additional context information, particularly for preferences
+     * @return The property model of this writer
+     */
+    static public IPropertyModel getPropertyModel(ISerializerDescriptor object, Object context) {
+        return new PropertyModel();
+    }
+
+    // ========================================================================================================================
+    // Write
+    // ========================================================================================================================
+
+    /**
+     * Writes the signals below the base cell as CSV.
+     *
+     * @param progress
+     *            Progress monitor for tracking the serialization operation
+     * @param cover
+     *            The cover providing context for serialization
+     * @param baseCell
+     *            The base cell (record or scope)
+     * @param list
+     *            The cells to be written (the signals below these cells are exported)
+     * @param opts
+     *            Options controlling the serialization process
+     */
+    @Override
+    public void write(IProgress progress, ICover cover, ICell baseCell, List<ICell> list, int opts) {
+        List<ICell> signals = new ArrayList<>();
+        if (list != null)
+            for (ICell cell : list)
+                collect(cell, signals);
+        else if (baseCell != null)
+            collect(baseCell, signals);
+        String[] names = new String[signals.size()];
+        for (int n = 0; n < names.length; n++)
+            names[n] = quote(path(baseCell, signals.get(n)));
+
+        try {
+            WritableByteChannel channel = out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : Channels.newChannel(out);
+            IDomainBase base = ParallelExport.getDomainBase(signals);
+            out.write(("position" + (base != null ? "[" + base + "]" : "") + ",signal,value\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            new ParallelExport().writeInterleaved(progress, signals, (signal, samples, idx, segment) -> {
+                IDomainBase signalBase = samples.getDomainBase();
+                long position = base.equals(signalBase) ? samples.multPosAt(idx) : signalBase.convertTo(base, samples.multPosAt(idx));
+                StringBuilder line = new StringBuilder(64);
+                line.append(position).append(',').append(names[signal]).append(',');
+                if (!samples.isNoneAt(idx))
+                    line.append(quote(samples.formatAt(idx, samples.getFormat())));
+                line.append('\n');
+                segment.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }, channel);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static void collect(ICell cell, List<ICell> signals) {
+        if (cell instanceof IRecord.Signal) {
+            signals.add(cell);
+            return;
+        }
+        List<ICell> children = cell.getChildren();
+        if (children != null)
+            for (ICell child : children)
+                collect(child, signals);
+    }
+
+    private static String path(ICell base, ICell cell) {
+        StringBuilder path = new StringBuilder(cell.getName());
+        for (ICell container = cell.getCellContainer(); container != null && container != base
+                && container instanceof IRecord.Scope; container = container.getCellContainer())
+            path.insert(0, '.').insert(0, container.getName());
+        return path.toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null)
+            return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,322 @@
+package de.toem.impulse.serializer.templates;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.element.ICover;
+import de.toem.toolkits.pattern.element.serializer.GenericZmlWriter;
+import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
+import de.toem.toolkits.pattern.element.serializer.ParallelDeflaterOutputStream;
+import de.toem.toolkits.pattern.pageable.Pageable;
+import de.toem.toolkits.pattern.systemLog.SystemLog;
+import de.toem.toolkits.pattern.threading.IProgress;
+import org.xml.sax.SAXException;
+
+/**
+ * Example implementation of a compressed XML (recMz) writer with parallel compression.
+ *
+ * The ParallelZmlWriter writes the same format as the generic compressed XML writer ("zml" followed by a zip
+ * container with an "xml" entry for the cell structure and a "binary" entry for the sample pages), so the files
+ * are read by the generic compressed XML reader. The XML is streamed through SAX as before; only the compression
+ * differs: both entries are deflated block-parallel with ParallelDeflaterOutputStream instead of a single-threaded
+ * ZipOutputStream.
+ *
+ * Key features demonstrated by this example:
+ * - Extending the generic compressed XML writer and replacing its container
+ * - Writing zip entries with data descriptors (sizes and CRC follow the compressed data)
+ *
+ * Implementation Notes:
+ * - Entries and archives larger than 4GB are written with zip64 records
+ * - Sample pages are written in the order of their XML references
+ *
+ * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 319
+ */
+public class ParallelZmlWriter extends GenericZmlWriter {
+
+    private final List<Pageable<?>> pages = new ArrayList<>();
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor for the ParallelZmlWriter.
+     */
+    public ParallelZmlWriter() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor for the ParallelZmlWriter.
+     *
+     * @param descriptor
+     *            The serializer descriptor providing contextual information
+     * @param contentName
+     *            The name of the content being written
+     * @param contentType
+     *            The MIME type or other format descriptor of the content
+     * @param cellType
+     *            The type of cell to be written
+     * @param configuration
+     *            Configuration name for specialized settings
+     * @param properties
+     *            Additional properties as key-value pairs
+     * @param out
+     *            The output stream to write to
+     */
+    public ParallelZmlWriter(ISerializerDescriptor descriptor, String contentName, String contentType, String cellType, String configuration,
+            String[][] properties, OutputStream out) {
+        super(descriptor, contentName, contentType, cellType, configuration, properties, out);
+    }
+
+    // ========================================================================================================================
+    // Write
+    // ========================================================================================================================
+
+    /**
+     * Writes the cells as compressed XML.
+     *
+     * @param progress
+     *            Progress monitor for tracking the serialization operation
+     * @param cover
+     *            The cover providing context for serialization
+     * @param baseCell
+     *            The base cell (e.g. the record)
+     * @param list
+     *            The cells to be written
+     * @param opts
+     *            Options controlling the serialization process
+     */
+    @Override
+    public void write(IProgress progress, ICover cover, ICell baseCell, List<ICell> list, int opts) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "impulse-deflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            out.write("zml".getBytes(StandardCharsets.US_ASCII));
+            ZipStream zip = new ZipStream(out, executor, threads);
+
+            write(progress, cover, baseCell, list, opts, zip.putNextEntry("xml"));
+            zip.closeEntry();
+
+            OutputStream binary = zip.putNextEntry("binary");
+            for (int n = 0; n < pages.size(); n++) {
+                if (progress != null) {
+                    progress.done(n / (double) pages.size(), true);
+                    if (progress.isCanceled())
+                        break;
+                }
+                Pageable<?> pageable = pages.get(n);
+                for (int id : pageable.ids()) {
+                    byte[] bytes = pageable.getBytes(id);
+                    if (bytes != null)
+                        binary.write(bytes);
+                }
+            }
+            zip.closeEntry();
+            zip.close();
+            out.close();
+        } catch (Throwable e) {
+            SystemLog.error(e);
+        } finally {
+            executor.shutdownNow();
+            pages.clear();
+        }
+    }
+
+    @Override
+    protected void writePageableField(String name, Pageable<?> pageable) throws SAXException {
+        super.writePageableField(name, pageable);
+        pages.add(pageable);
+    }
+
+    // ========================================================================================================================
+    // Zip
+    // ========================================================================================================================
+
+    /**
+     * Minimal sequential zip writer for deflated entries with data descriptors.
+     */
+    private static class ZipStream {
+
+        private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
+        private final CountingStream out;
+        private final ExecutorService executor;
+        private final int threads;
+        private final List<long[]> entries = new ArrayList<>(); // crc, size, compressed size, offset
+        private final List<byte[]> names = new ArrayList<>();
+        private ParallelDeflaterOutputStream entry;
+        private long offset;
+
+        ZipStream(OutputStream out, ExecutorService executor, int threads) {
+            this.out = new CountingStream(new BufferedOutputStream(out, 1 << 16));
+            this.executor = executor;
+            this.threads = threads;
+        }
+
+        OutputStream putNextEntry(String name) throws IOException {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            offset = out.count;
+            writeInt(0x04034b50);
+            writeShort(20); // version needed
+            writeShort(0x0808); // data descriptor, utf-8 names
+            writeShort(8); // deflated
+            writeInt(dosTime());
+            writeInt(0); // crc and sizes follow in the data descriptor
+            writeInt(0);
+            writeInt(0);
+            writeShort(bytes.length);
+            writeShort(0);
+            out.write(bytes);
+            names.add(bytes);
+            entry = new ParallelDeflaterOutputStream(new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() {
+                    // the zip stream stays open
+                }
+            }, executor, threads, Deflater.DEFAULT_COMPRESSION);
+            return entry;
+        }
+
+        void closeEntry() throws IOException {
+            entry.finish();
+            long crc = entry.getCrc();
+            long size = entry.getTotalIn();
+            long compressed = entry.getTotalOut();
+            writeInt(0x08074b50);
+            writeInt((int) crc);
+            if (size >= ZIP64_LIMIT || compressed >= ZIP64_LIMIT) {
+                writeLong(compressed);
+                writeLong(size);
+            } else {
+                writeInt((int) compressed);
+                writeInt((int) size);
+            }
+            entries.add(new long[] { crc, size, compressed, offset });
+            entry = null;
+        }
+
+        void close() throws IOException {
+            long start = out.count;
+            boolean zip64 = false;
+            for (int n = 0; n < entries.size(); n++) {
+                long[] e = entries.get(n);
+                byte[] name = names.get(n);
+                boolean large = e[1] >= ZIP64_LIMIT || e[2] >= ZIP64_LIMIT || e[3] >= ZIP64_LIMIT;
+                zip64 |= large;
+                writeInt(0x02014b50);
+                writeShort(large ? 45 : 20); // version made by
+                writeShort(large ? 45 : 20); // version needed
+                writeShort(0x0808);
+                writeShort(8);
+                writeInt(dosTime());
+                writeInt((int) e[0]);
+                writeInt(large ? -1 : (int) e[2]);
+                writeInt(large ? -1 : (int) e[1]);
+                writeShort(name.length);
+                writeShort(large ? 28 : 0);
+                writeShort(0); // comment
+                writeShort(0); // disk
+                writeShort(0); // internal attributes
+                writeInt(0); // external attributes
+                writeInt(large ? -1 : (int) e[3]);
+                out.write(name);
+                if (large) {
+                    writeShort(0x0001);
+                    writeShort(24);
+                    writeLong(e[1]);
+                    writeLong(e[2]);
+                    writeLong(e[3]);
+                }
+            }
+            long end = out.count;
+            long size = end - start;
+            if (zip64 || start >= ZIP64_LIMIT) {
+                writeInt(0x06064b50); // zip64 end of central directory
+                writeLong(44);
+                writeShort(45);
+                writeShort(45);
+                writeInt(0);
+                writeInt(0);
+                writeLong(entries.size());
+                writeLong(entries.size());
+                writeLong(size);
+                writeLong(start);
+                writeInt(0x07064b50); // zip64 locator
+                writeInt(0);
+                writeLong(end);
+                writeInt(1);
+            }
+            writeInt(0x06054b50);
+            writeShort(0);
+            writeShort(0);
+            writeShort(entries.size());
+            writeShort(entries.size());
+            writeInt((int) Math.min(size, ZIP64_LIMIT));
+            writeInt((int) Math.min(start, ZIP64_LIMIT));
+            writeShort(0);
+            out.flush();
+        }
+
+        private static int dosTime() {
+            LocalDateTime time = LocalDateTime.now();
+            return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16 | time.getHour() << 11
+                    | time.getMinute() << 5 | time.getSecond() >> 1;
+        }
+
+        private void writeShort(int value) throws IOException {
+            out.write(value);
+            out.write(value >>> 8);
+        }
+
+        private void writeInt(int value) throws IOException {
+            writeShort(value);
+            writeShort(value >>> 16);
+        }
+
+        private void writeLong(long value) throws IOException {
+            writeInt((int) value);
+            writeInt((int) (value >>> 32));
+        }
+    }
+
+    private static class CountingStream extends FilterOutputStream {
+
+        long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package de.toem.impulse.serializer.templates;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import de.toem.impulse.serializer.RecordSnapshot;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.element.ICover;
+import de.toem.toolkits.pattern.element.serializer.AbstractCellWriter;
+import de.toem.toolkits.pattern.element.serializer.ISerializerDescriptor;
+import de.toem.toolkits.pattern.element.serializer.SingletonSerializerPreference.DefaultSerializerConfiguration;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.properties.PropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+
+/**
+ * Example implementation of a cell writer for binary record snapshots.
+ *
+ * The SnapshotWriter persists a parsed record (scope tree, signal descriptors, legends and packed samples) in the
+ * binary snapshot format of RecordSnapshot. Snapshots are restored by the SnapshotReader without parsing,
+ * so a large trace only needs to be parsed once.
+ *
+ * Key features demonstrated by this example:
+ * - Extending AbstractCellWriter to implement the ICellWriter interface
+ * - Traversing a record and writing the packed samples of its signals
+ *
+ * Snapshots written by this writer carry no source key. Cached snapshots (keyed by size and modification time
+ * of the source) are written with RecordSnapshot.save.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber All rights reserved. docID: 315
+ */
+public class SnapshotWriter extends AbstractCellWriter {
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor for the SnapshotWriter.
+     */
+    public SnapshotWriter() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor for the SnapshotWriter.
+     *
+     * @param descriptor
+     *            The serializer descriptor providing contextual information
+     * @param contentName
+     *            The name of the content being written
+     * @param contentType
+     *            The MIME type or other format descriptor of the content
+     * @param cellType
+     *            The type of cell to be written
+     * @param configuration
+     *            Configuration name for specialized settings
+     * @param properties
+     *            Additional properties as key-value pairs
+     * @param out
+     *            The output stream to write the snapshot to
+     */
+    public SnapshotWriter(ISerializerDescriptor descriptor, String contentName, String contentType, String cellType, String configuration,
+            String[][] properties, OutputStream out) {
+        super(descriptor, configuration, properties, getPropertyModel(descriptor, null), out);
+    }
+
+    // ========================================================================================================================
+    // Supports
+    // ========================================================================================================================
+
+    /**
+     * Determines if this writer supports the specified functionality request.
+     *
+     * @param request
+     *            An Integer identifying the functionality being queried (usually one of the SUPPORT_* constants)
+     * @param context
+     *            Additional context for the request, typically a configuration type string
+     * @return true if the writer supports the requested functionality, false otherwise
+     */
+    public static boolean supports(Object request, Object context) {
+        int ir = request instanceof Integer ? ((Integer) request).intValue() : -1;
+        if (SUPPORT_CONFIGURATION == ir && DefaultSerializerConfiguration.TYPE.equals(context))
+            return true;
+        return false;
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Creates and returns the property model for configuring this writer (no properties).
+     *
+     * @param object
+     *            The serializer descriptor, used to provide context
+     * @param context
+     *            Additional context information, particularly for preferences
+     * @return The property model of this writer
+     */
+    static public IPropertyModel getPropertyModel(ISerializerDescriptor object, Object context) {
+        return new PropertyModel();
+    }
+
+    // ========================================================================================================================
+    // Write
+    // ========================================================================================================================
+
+    /**
+     * Writes the snapshot of the given record.
+     *
+     * @param progress
+     *            Progress monitor for tracking the serialization operation
+     * @param cover
+     *            The cover providing context for serialization
+     * @param baseCell
+     *            The record (root or base cell)
+     * @param list
+     *            The children of the base cell (not used, the complete record is written)
+     * @param opts
+     *            Options controlling the serialization process
+     */
+    @Override
+    public void write(IProgress progress, ICover cover, ICell baseCell, List<ICell> list, int opts) {
+        try {
+            RecordSnapshot.write(progress, baseCell, 0, 0, out);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package de.toem.impulse.samples.adaptors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.toem.impulse.samples.Instrumentation;
+import de.toem.impulse.samples.SamplesRetention;
+import de.toem.impulse.serializer.FlushScheduler;
+import de.toem.toolkits.pattern.element.adaptor.AdaptorException;
+import de.toem.toolkits.pattern.element.adaptor.ICellAdaptorDescriptor;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+
+/**
+ * Base class for adaptors serving many blocking connections (sockets, serial ports, device links) in one record.
+ *
+ * Each connection runs on its own task and reads with plain blocking I/O; there is no polling. The tasks run on
+ * virtual threads if the runtime provides them (Java 21 and newer), so hundreds of idle connections cost neither
+ * platform threads nor context switches. On older runtimes a cached pool of daemon threads is used. Flushing is not
+ * done by the connections: one scheduler thread, shared by all adaptors of this kind, flushes each adaptor at a
+ * fixed interval and applies the retention policy (SamplesRetention) of the adaptor.
+ *
+ * Subclasses create the record in init and provide the connections in accept:
+ *
+ * <pre>
+ * protected void init(IProgress progress) throws AdaptorException {
+ *     initRecord("Devices", TimeBase.ns);
+ *     open(0);
+ * }
+ *
+ * protected void accept(IProgress progress) throws IOException {
+ *     ServerSocket server = register(new ServerSocket(port));
+ *     while (!isStopped())
+ *         connect(server.accept(), socket -&gt; {
+ *             InputStream in = socket.getInputStream();
+ *             ... // blocking reads
+ *             produce(position, () -&gt; writer.write(position, false, value));
+ *         });
+ * }
+ * </pre>
+ *
+ * Writers are not thread-safe. All writes and all record changes of a connection are done inside produce, which
+ * serializes them with the other connections and with the flush. Never block inside produce.
+ *
+ * If the properties contain a queue capacity (see IngestionQueue.getPropertyModel()), produce does not write
+ * directly: the writes are queued and run later by one writing task, so bursts of the sources do not wait for the
+ * writers and the flush. The queue bounds the memory; when it is full, its policy blocks the source or drops entries.
+ * Queued writes must not refer to buffers the connection reuses. The queue depth and the dropped entries are reported
+ * to the progress at each flush.
+ *
+ * The adaptor ends when accept returned and all connections are closed, or when it is canceled. Canceling closes
+ * all registered resources (connections and e.g. server sockets), which unblocks pending reads.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 117
+ */
+public abstract class AbstractConnectionRecordAdaptor extends AbstractSingleDomainRecordAdaptor {
+
+    /**
+     * A connection served on its own task.
+     *
+     * @param <T> The connection resource.
+     */
+    public interface IConnection<T extends Closeable> {
+        /**
+         * Reads from the connection until it is closed. Called on the connection task.
+         *
+         * @param resource The connection resource.
+         * @throws Exception If the connection fails; the failure is reported and the other connections continue.
+         */
+        void serve(T resource) throws Exception;
+    }
+
+    // shared by all adaptors
+    private static final boolean VIRTUAL;
+    private static final ExecutorService CONNECTIONS;
+    static {
+        ExecutorService executor = null;
+        try {
+            // virtual threads (Java 21+), looked up reflectively as the bundles target Java 8
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+        }
+        VIRTUAL = executor != null;
+        CONNECTIONS = executor != null ? executor : Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "impulse-adaptor-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    private static final ScheduledExecutorService FLUSH = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "impulse-adaptor-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // ReentrantLocks rather than monitors: waiting connection tasks do not pin the carrier of a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock connections = new ReentrantLock();
+    private final Condition disconnected = connections.newCondition();
+    private final List<Closeable> resources = new ArrayList<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean stopped;
+    private long position = Long.MIN_VALUE;
+    private long interval = FlushScheduler.DEFAULT_INTERVAL;
+    private SamplesRetention retention = SamplesRetention.NONE;
+    private IngestionQueue<Entry> queue;
+    private IProgress adaptProgress;
+
+    // queued writes
+    private static final class Entry {
+        final long position;
+        final Runnable writes;
+
+        Entry(long position, Runnable writes) {
+            this.position = position;
+            this.writes = writes;
+        }
+    }
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Default constructor.
+     */
+    public AbstractConnectionRecordAdaptor() {
+        super();
+    }
+
+    /**
+     * Fully parameterized constructor.
+     *
+     * @param descriptor The adaptor descriptor
+     * @param cellType The type of cell that will be produced
+     * @param configuration Configuration name for specialized settings
+     * @param properties Additional properties as key-value pairs
+     * @param model The property model of the adaptor
+     */
+    public AbstractConnectionRecordAdaptor(ICellAdaptorDescriptor descriptor, String cellType, String configuration, String[][] properties,
+            IPropertyModel model) {
+        super(descriptor, cellType, configuration, properties, model);
+    }
+
+    /**
+     * Returns true if connections run on virtual threads.
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    // ========================================================================================================================
+    // Subclass
+    // ========================================================================================================================
+
+    /**
+     * Creates the record and opens the adaptor. Called on the adaptor thread before accept.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation
+     * @throws AdaptorException If the record cannot be created
+     */
+    protected abstract void init(IProgress progress) throws AdaptorException;
+
+    /**
+     * Provides the connections with connect. May block (e.g. accepting sockets) until isStopped() or until no more
+     * connections will come. Called on the adaptor thread.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation
+     * @throws IOException If accepting fails; open connections are closed
+     */
+    protected abstract void accept(IProgress progress) throws IOException;
+
+    // ========================================================================================================================
+    // Connections
+    // ========================================================================================================================
+
+    /**
+     * Registers a resource that is closed when the adaptor is canceled or ends.
+     *
+     * @param resource The resource.
+     * @return The resource.
+     */
+    protected final <T extends Closeable> T register(T resource) {
+        connections.lock();
+        try {
+            resources.add(resource);
+        } finally {
+            connections.unlock();
+        }
+        if (stopped)
+            closeQuietly(resource);
+        return resource;
+    }
+
+    /**
+     * Starts serving a connection on its own task. The resource is registered and closed when serve returns.
+     *
+     * @param resource The connection resource (e.g. a socket).
+     * @param connection The connection.
+     */
+    protected final <T extends Closeable> void connect(T resource, IConnection<T> connection) {
+        register(resource);
+        active.incrementAndGet();
+        CONNECTIONS.execute(() -> {
+            try {
+                connection.serve(resource);
+            } catch (Throwable e) {
+                if (!stopped)
+                    addMessage(e);
+            } finally {
+                closeQuietly(resource);
+                connections.lock();
+                try {
+                    resources.remove(resource);
+                    active.decrementAndGet();
+                    disconnected.signalAll();
+                } finally {
+                    connections.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes samples of a connection. The writes are serialized with the other connections and with the flush. With
+     * an ingestion queue the writes are queued and run later by the writing task.
+     *
+     * @param position The highest position written, in multiples of the record domain base.
+     * @param writes The writes (must not block).
+     * @return true if the writes were done or queued, false if the queue dropped them.
+     */
+    protected final boolean produce(long position, Runnable writes) {
+        if (queue == null) {
+            lock.lock();
+            try {
+                write(position, writes);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+        try {
+            return queue.offer(new Entry(position, writes));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void write(long position, Runnable writes) {
+        writes.run();
+        if (position > this.position)
+            this.position = position;
+    }
+
+    /**
+     * Returns the ingestion queue, or null if produce writes directly.
+     */
+    protected final IngestionQueue<?> getQueue() {
+        return queue;
+    }
+
+    /**
+     * Returns the number of open connections.
+     */
+    protected final int getConnections() {
+        return active.get();
+    }
+
+    /**
+     * Returns true if the adaptor has been canceled or is ending.
+     */
+    protected final boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Sets the flush interval (default FlushScheduler.DEFAULT_INTERVAL). Call in init.
+     *
+     * @param interval The interval in milliseconds.
+     */
+    protected final void setFlushInterval(long interval) {
+        this.interval = Math.max(10, interval);
+    }
+
+    // ========================================================================================================================
+    // Adapt
+    // ========================================================================================================================
+
+    @Override
+    protected void adapt(IProgress progress) throws AdaptorException {
+        adaptProgress = progress;
+        retention = SamplesRetention.create(getProperties());
+        queue = IngestionQueue.create(getProperties());
+        ScheduledFuture<?> flush = null;
+        Future<?> writing = null;
+        try {
+            init(progress);
+            if (queue != null)
+                writing = CONNECTIONS.submit(this::drain);
+            flush = FLUSH.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+            accept(progress);
+
+            // wait for the connections
+            connections.lock();
+            try {
+                while (active.get() > 0 && !stopped && (progress == null || !progress.isCanceled()))
+                    disconnected.await(interval, TimeUnit.MILLISECONDS);
+            } finally {
+                connections.unlock();
+            }
+        } catch (IOException e) {
+            if (!stopped)
+                throw new AdaptorException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stop();
+            // the writing task ends when the queue is drained
+            if (writing != null)
+                try {
+                    writing.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    addMessage(e.getCause());
+                }
+            if (queue != null)
+                queue.report(progress);
+            if (flush != null)
+                flush.cancel(false);
+            lock.lock();
+            try {
+                if (current != null)
+                    close(Math.max(current(), position));
+                else if (position != Long.MIN_VALUE)
+                    close(position);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void flush() {
+        if (adaptProgress != null && adaptProgress.isCanceled())
+            stop();
+        lock.lock();
+        try {
+            if (stopped)
+                return;
+            retention.apply(this);
+            if (queue != null)
+                queue.report(adaptProgress);
+            if (position != Long.MIN_VALUE)
+                changed(CHANGED_SIGNALS, position);
+            Instrumentation.IEvent event = Instrumentation.begin(Instrumentation.EVENT_FLUSH);
+            try {
+                flushAndSetProgress(adaptProgress);
+            } finally {
+                event.commit(null, getId());
+            }
+        } catch (RuntimeException e) {
+            // an exception would end the fixed delay schedule
+            addMessage(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (queue.await(interval) || !queue.isClosed()) {
+                lock.lock();
+                try {
+                    queue.drain(entry -> {
+                        try {
+                            write(entry.position, entry.writes);
+                        } catch (RuntimeException e) {
+                            addMessage(e);
+                        }
+                    }, 1024);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stop() {
+        stopped = true;
+        if (queue != null)
+            queue.close();
+        List<Closeable> open;
+        connections.lock();
+        try {
+            open = new ArrayList<>(resources);
+            disconnected.signalAll();
+        } finally {
+            connections.unlock();
+        }
+        for (Closeable resource : open)
+            closeQuietly(resource);
+    }
+
+    private static void closeQuietly(Closeable resource) {
+        try {
+            resource.close();
+        } catch (IOException e) {
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package de.toem.impulse.serializer;
+
+/**
+ * Coalescing of change notifications of a parsing record reader.
+ *
+ * Readers often report a change after every sample (changed(CHANGED_SIGNALS, current)). Each notification
+ * may reach UI listeners, so the cost grows with the sample rate. The ChangeAccumulator collects the
+ * changes instead and forwards them to the reader at flush time, as a single notification:
+ * - the change level is the highest level reported (the CHANGED_* values are ordered by impact:
+ *   CHANGED_VALUE &lt; CHANGED_CURRENT &lt; CHANGED_SIGNALS &lt; CHANGED_RECORD)
+ * - the position is the highest position reported
+ * - at most maxRate notifications per second are forwarded, independent of the flush rate
+ *
+ * Recording a change is a plain field update (no volatile access, no locking). The accumulator belongs
+ * to the parsing thread: changed() and drain() are called by the same thread.
+ *
+ * <pre>
+ * ChangeAccumulator changes = new ChangeAccumulator(this);
+ * ...
+ * writer.write(current, false, value);
+ * changes.changed(CHANGED_SIGNALS, current);
+ * ...
+ * // at flush time
+ * changes.drain();
+ * flushAndSetProgress(progress);
+ * </pre>
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 89
+ */
+public class ChangeAccumulator {
+
+    /** Default maximum number of forwarded notifications per second */
+    public static final int DEFAULT_RATE = 10;
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final IParsingRecordReader reader;
+    private final long minDistance;
+    private int changed;
+    private long units = NONE;
+    private long last = NONE;
+    private long forwarded;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates an accumulator with the default rate.
+     *
+     * @param reader The reader to be notified.
+     */
+    public ChangeAccumulator(IParsingRecordReader reader) {
+        this(reader, DEFAULT_RATE);
+    }
+
+    /**
+     * Creates an accumulator.
+     *
+     * @param reader The reader to be notified.
+     * @param maxRate Maximum number of forwarded notifications per second (0 for unlimited).
+     */
+    public ChangeAccumulator(IParsingRecordReader reader, int maxRate) {
+        this.reader = reader;
+        this.minDistance = maxRate > 0 ? 1000000000L / maxRate : 0;
+    }
+
+    // ========================================================================================================================
+    // Changes
+    // ========================================================================================================================
+
+    /**
+     * Records a change with position.
+     *
+     * @param changed Change information (IRecordReader.CHANGED_*)
+     * @param units Current end position as a multiple of its domain base
+     */
+    public void changed(int changed, long units) {
+        if (changed > this.changed)
+            this.changed = changed;
+        if (units > this.units)
+            this.units = units;
+    }
+
+    /**
+     * Records a change without position.
+     *
+     * @param changed Change information (IRecordReader.CHANGED_*)
+     */
+    public void changed(int changed) {
+        if (changed > this.changed)
+            this.changed = changed;
+    }
+
+    /**
+     * Returns true if there are changes that have not been forwarded.
+     */
+    public boolean hasPending() {
+        return changed != 0;
+    }
+
+    /**
+     * Forwards the accumulated changes to the reader, if the rate allows.
+     * Changes that are not forwarded stay pending until the next drain.
+     *
+     * @return true if a notification was forwarded.
+     */
+    public boolean drain() {
+        return drain(false);
+    }
+
+    /**
+     * Forwards the accumulated changes to the reader.
+     *
+     * @param force If true, forwards regardless of the rate (e.g. before closing).
+     * @return true if a notification was forwarded.
+     */
+    public boolean drain(boolean force) {
+        if (changed == 0)
+            return false;
+        long now = minDistance > 0 ? System.nanoTime() : 0;
+        if (!force && last != NONE && now - last < minDistance)
+            return false;
+        int c = changed;
+        long u = units;
+        changed = 0;
+        last = now;
+        forwarded++;
+        if (u != NONE)
+            reader.changed(c, u);
+        else
+            reader.changed(c);
+        return true;
+    }
+
+    /**
+     * Returns the number of forwarded notifications.
+     */
+    public long getForwarded() {
+        return forwarded;
+    }
+}
@@ -0,0 +1,191 @@
+package de.toem.impulse.samples;
+
+/**
+ * Change-only compaction for packed samples.
+ *
+ * Many sources (periodic bus snapshots, polled registers) write the same value again and again. The compactor sits
+ * on the packed path of a samples writer and drops every sample that equals the previously written sample in value,
+ * tag level, layer and attachments, so sampled signals become change-only signals. The comparison is done on the
+ * packed bytes, so it works for all data types (logic, numbers, text, binary, events and structs) without decoding.
+ *
+ * <pre>
+ * ChangeCompactor compactor = new ChangeCompactor(writer);
+ * for (int idx = 0; idx &lt; samples.getCount(); idx++)
+ *     compactor.writeSample(samples.packedAt(idx, 0));
+ * </pre>
+ *
+ * A complete signal is compacted into another writer with compact(source, target).
+ *
+ * Notes:
+ * - Samples that are part of a group (transaction) are never dropped
+ * - Use the compactor for discrete writers only; continuous writers (opened with a rate) rely on one sample per
+ *   grid position
+ * - The compactor keeps a copy of the last written sample; it is not thread-safe
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 113
+ */
+public class ChangeCompactor {
+
+    private final ISamplesWriter writer;
+
+    // last written sample
+    private boolean valid;
+    private byte format0;
+    private int tag;
+    private int layer;
+    private byte[] value = new byte[16];
+    private int valueLength;
+    private byte[] attachments = new byte[16];
+    private int attachmentsLength;
+
+    private long written;
+    private long dropped;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a compactor writing into the given writer.
+     *
+     * @param writer The target writer.
+     */
+    public ChangeCompactor(ISamplesWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Compacts a complete signal: all samples of the source that differ from their predecessor are written into the
+     * target writer (which has to be open). The legend (enumerations, struct members) is not copied.
+     *
+     * @param source The source samples.
+     * @param target The target writer.
+     * @return The number of dropped samples.
+     */
+    public static long compact(IReadableSamples source, ISamplesWriter target) {
+        ChangeCompactor compactor = new ChangeCompactor(target);
+        int count = source.getCount();
+        for (int idx = 0; idx < count; idx++)
+            compactor.writeSample(source.packedAt(idx, 0));
+        return compactor.getDropped();
+    }
+
+    // ========================================================================================================================
+    // Write
+    // ========================================================================================================================
+
+    /**
+     * Writes a packed sample unless it equals the previous sample.
+     *
+     * @param pack The packed sample (value, tag and attachments).
+     * @return true if the sample was written, false if it was dropped or rejected by the writer.
+     */
+    public boolean writeSample(ISamplePack pack) {
+        byte[] bytes = pack.getBytes();
+        if (pack.getOrder() == ISample.GO_NONE && equal(pack.getFormat0(), pack.getTag(), pack.getLayer(), bytes, pack.getValuePos(),
+                pack.getValueLength(), pack.getAttachmentsPos(), pack.getAttachmentsLength())) {
+            dropped++;
+            return false;
+        }
+        if (!writer.writeSample(pack))
+            return false;
+        remember(pack.getFormat0(), pack.getTag(), pack.getLayer(), bytes, pack.getValuePos(), pack.getValueLength(), pack.getAttachmentsPos(),
+                pack.getAttachmentsLength(), pack.getOrder());
+        written++;
+        return true;
+    }
+
+    /**
+     * Writes a packed sample value (without attachments) unless it equals the previous sample. This overload cannot
+     * carry a tag level: format0 may contain the tag flag only, samples with a tag level are rejected by the writer
+     * (use writeSample(ISamplePack)).
+     *
+     * @param position The domain position as a multiple of its domain base.
+     * @param format0 The packed format (including the tag flag).
+     * @param order The group order (ISample.GO_NONE for samples outside of groups).
+     * @param layer The layer.
+     * @param data The buffer containing the packed value.
+     * @param start The start of the value in the buffer.
+     * @param length The length of the value.
+     * @return true if the sample was written, false if it was dropped or rejected by the writer.
+     */
+    public boolean writeSample(long position, byte format0, int order, int layer, byte[] data, int start, int length) {
+        if (order == ISample.GO_NONE && equal(format0, 0, layer, data, start, length, 0, 0)) {
+            dropped++;
+            return false;
+        }
+        if (!writer.writeSample(position, format0, order, layer, data, start, length))
+            return false;
+        remember(format0, 0, layer, data, start, length, 0, 0, order);
+        written++;
+        return true;
+    }
+
+    /**
+     * Forgets the previous sample, so the next sample is written in any case (e.g. after a gap in the input).
+     */
+    public void reset() {
+        valid = false;
+    }
+
+    // ========================================================================================================================
+    // Status
+    // ========================================================================================================================
+
+    /**
+     * Returns the target writer.
+     */
+    public ISamplesWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Returns the number of written samples (accepted by the writer).
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Returns the number of dropped samples.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    // ========================================================================================================================
+    // Compare
+    // ========================================================================================================================
+
+    private boolean equal(byte format0, int tag, int layer, byte[] data, int start, int length, int attachmentsStart, int attachmentsLength) {
+        return valid && format0 == this.format0 && tag == this.tag && layer == this.layer && length == valueLength && attachmentsLength == this.attachmentsLength
+                && equal(data, start, value, length) && equal(data, attachmentsStart, attachments, attachmentsLength);
+    }
+
+    private static boolean equal(byte[] data, int start, byte[] copy, int length) {
+        for (int n = length - 1; n >= 0; n--)
+            if (data[start + n] != copy[n])
+                return false;
+        return true;
+    }
+
+    private void remember(byte format0, int tag, int layer, byte[] data, int start, int length, int attachmentsStart, int attachmentsLength,
+            int order) {
+        // group samples are never compacted, and the first sample after a group is always written
+        valid = order == ISample.GO_NONE;
+        this.format0 = format0;
+        this.tag = tag;
+        this.layer = layer;
+        if (value.length < length)
+            value = new byte[Math.max(length, value.length * 2)];
+        System.arraycopy(data, start, value, 0, length);
+        valueLength = length;
+        if (attachments.length < attachmentsLength)
+            attachments = new byte[Math.max(attachmentsLength, attachments.length * 2)];
+        if (attachmentsLength > 0)
+            System.arraycopy(data, attachmentsStart, attachments, 0, attachmentsLength);
+        this.attachmentsLength = attachmentsLength;
+    }
+}
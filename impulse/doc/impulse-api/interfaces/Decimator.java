@@ -0,0 +1,320 @@
+package de.toem.impulse.serializer;
+
+import java.math.BigInteger;
+
+import de.toem.impulse.samples.IFloatSamplesWriter;
+import de.toem.impulse.samples.IIntegerSamplesWriter;
+import de.toem.impulse.samples.ISamplesWriter;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.properties.PropertyModel;
+
+/**
+ * Import-time decimation for oversampled numeric signals.
+ *
+ * The decimator is placed between a reader and a float or integer samples writer. It collects the input samples in
+ * buckets of 'factor' samples and writes one value per bucket (or two with MODE_MIN_MAX), so the stored samples and
+ * the memory drop by the decimation factor:
+ * - MODE_NTH: the first sample of each bucket
+ * - MODE_MIN_MAX: the minimum and the maximum of each bucket, in the order they occurred (keeps peaks and glitches)
+ * - MODE_AVERAGE: the average of each bucket
+ *
+ * For continuous writers (opened with a rate) buckets are aligned to the position grid and the writer is opened
+ * with the decimated rate (rate x factor, or rate x factor / 2 for min/max pairs), so the output stays on a regular
+ * grid starting at the original start. For discrete writers (rate 0) buckets hold 'factor' consecutive samples and
+ * the values are written at the position of their first (or min/max) sample.
+ *
+ * The decimation is configured with the properties of getPropertyModel() and selected per signal with signal path
+ * patterns (same syntax as the include property, see ImportFilter):
+ *
+ * <pre>
+ * IFloatSamplesWriter writer = (IFloatSamplesWriter) getWriter(signal);
+ * Decimator decimator = Decimator.create(getProperties(), writer, "adc", "ch0");
+ * decimator.open(0, 1);  // 1ns grid in, 100ns grid out for factor 100
+ * decimator.write(position, false, value);
+ * ...
+ * decimator.close(end);  // writes the last partial bucket
+ * </pre>
+ *
+ * A decimator is not thread-safe; use one instance per signal.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 111
+ */
+public class Decimator {
+
+    /** No decimation; all samples are passed to the writer */
+    public static final int MODE_NONE = 0;
+
+    /** Keep the first sample of each bucket */
+    public static final int MODE_NTH = 1;
+
+    /** Keep the minimum and the maximum of each bucket */
+    public static final int MODE_MIN_MAX = 2;
+
+    /** Keep the average of each bucket */
+    public static final int MODE_AVERAGE = 3;
+
+    public static final String[] MODE_LABELS = { "None", "Every Nth", "Min/Max", "Average" };
+    public static final Integer[] MODE_OPTIONS = { MODE_NONE, MODE_NTH, MODE_MIN_MAX, MODE_AVERAGE };
+
+    private final ISamplesWriter writer;
+    private final IFloatSamplesWriter floats;
+    private final IIntegerSamplesWriter integers;
+    private final int mode;
+    private final int factor;
+
+    // grid
+    private long start;
+    private long rate;
+    private long bucketSize;
+
+    // bucket (float values for float writers, long values for integer writers)
+    private long bucket;
+    private int count;
+    private boolean tag;
+    private long firstPosition, minPosition, maxPosition;
+    private double first, min, max, sum;
+    private long longFirst, longMin, longMax, longSum, longSumHigh;  // 128 bit sum (high and low word)
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a decimator for a float or integer samples writer.
+     *
+     * @param writer The target writer (IFloatSamplesWriter or IIntegerSamplesWriter).
+     * @param mode The decimation mode (MODE_*).
+     * @param factor The number of input samples per bucket (min/max pairs need at least 2).
+     * @throws IllegalArgumentException If the writer is not a float or integer writer.
+     */
+    public Decimator(ISamplesWriter writer, int mode, int factor) {
+        this.writer = writer;
+        this.floats = writer instanceof IFloatSamplesWriter ? (IFloatSamplesWriter) writer : null;
+        this.integers = writer instanceof IIntegerSamplesWriter ? (IIntegerSamplesWriter) writer : null;
+        if (floats == null && integers == null)
+            throw new IllegalArgumentException("Decimation requires a float or integer writer");
+        this.factor = Math.max(1, mode == MODE_MIN_MAX ? factor & ~1 : factor);
+        this.mode = this.factor > 1 ? mode : MODE_NONE;
+    }
+
+    /**
+     * Creates the decimator for a signal from the reader properties (see getPropertyModel()). Signals not selected
+     * by the "decimationSignals" patterns get a decimator with MODE_NONE, so readers can write all numeric signals
+     * through a decimator.
+     *
+     * @param properties The reader properties.
+     * @param writer The target writer (IFloatSamplesWriter or IIntegerSamplesWriter).
+     * @param path The names of the scopes and the signal.
+     * @return The decimator.
+     */
+    public static Decimator create(IPropertyModel properties, ISamplesWriter writer, String... path) {
+        Integer mode = properties != null ? properties.getTyped("decimation", Integer.class) : null;
+        Integer factor = properties != null ? properties.getTyped("decimationFactor", Integer.class) : null;
+        if (mode == null || mode == MODE_NONE || factor == null || factor <= 1)
+            return new Decimator(writer, MODE_NONE, 1);
+        String signals = properties.getVal("decimationSignals");
+        if (signals != null && !signals.trim().isEmpty() && !new ImportFilter(signals, null, null, null).accepts(path))
+            return new Decimator(writer, MODE_NONE, 1);
+        return new Decimator(writer, mode, factor);
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Returns the decimation properties ("decimation", "decimationFactor" and "decimationSignals") to be added to the
+     * property model of a reader.
+     *
+     * @return The property model.
+     */
+    public static PropertyModel getPropertyModel() {
+        return new PropertyModel()
+                .add("decimation", MODE_NONE, MODE_LABELS, MODE_OPTIONS, null, "Decimation", null, "Decimation of numeric signals at import")
+                .add("decimationFactor", 100, null, null, null, "Decimation Factor", null, "Number of input samples per output value")
+                .add("decimationSignals", "", null, null, "Decimated Signals", null, "Signal path patterns selecting the decimated signals (empty for all)");
+    }
+
+    // ========================================================================================================================
+    // Write
+    // ========================================================================================================================
+
+    /**
+     * Returns the decimation mode (MODE_NONE if the samples are passed through).
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the decimation factor.
+     */
+    public int getFactor() {
+        return factor;
+    }
+
+    /**
+     * Returns the target writer.
+     */
+    public ISamplesWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Opens the target writer. With a rate, the writer is opened with the decimated rate on the original grid.
+     *
+     * @param start Domain start position as a multiple of its domain base.
+     * @param rate Domain rate distance of the input samples as a multiple of its domain base (0 for discrete).
+     * @return true if the writer was opened.
+     */
+    public boolean open(long start, long rate) {
+        this.start = start;
+        this.rate = rate;
+        this.bucketSize = rate * factor;
+        this.count = 0;
+        if (mode == MODE_NONE || rate <= 0)
+            return writer.open(start, rate);
+        return writer.open(start, mode == MODE_MIN_MAX ? bucketSize / 2 : bucketSize);
+    }
+
+    /**
+     * Writes a float sample.
+     *
+     * @param position The domain position as a multiple of its domain base.
+     * @param tag The tag flag.
+     * @param value The value.
+     * @return true if the sample was accepted.
+     */
+    public boolean write(long position, boolean tag, double value) {
+        if (integers != null)
+            return write(position, tag, Math.round(value));
+        if (mode == MODE_NONE)
+            return floats.write(position, tag, value);
+        if (next(position)) {
+            first = min = max = value;
+            minPosition = maxPosition = position;
+        } else if (value < min) {
+            min = value;
+            minPosition = position;
+        } else if (value > max) {
+            max = value;
+            maxPosition = position;
+        }
+        sum += value;
+        this.tag |= tag;
+        count++;
+        return true;
+    }
+
+    /**
+     * Writes an integer sample.
+     *
+     * @param position The domain position as a multiple of its domain base.
+     * @param tag The tag flag.
+     * @param value The value.
+     * @return true if the sample was accepted.
+     */
+    public boolean write(long position, boolean tag, long value) {
+        if (floats != null)
+            return write(position, tag, (double) value);
+        if (mode == MODE_NONE)
+            return integers.write(position, tag, value);
+        if (next(position)) {
+            longFirst = longMin = longMax = value;
+            minPosition = maxPosition = position;
+        } else if (value < longMin) {
+            longMin = value;
+            minPosition = position;
+        } else if (value > longMax) {
+            longMax = value;
+            maxPosition = position;
+        }
+        long low = longSum + value;
+        longSumHigh += (value >> 63) + (Long.compareUnsigned(low, longSum) < 0 ? 1 : 0);
+        longSum = low;
+        this.tag |= tag;
+        count++;
+        return true;
+    }
+
+    /**
+     * Writes the current (partial) bucket and closes the target writer.
+     *
+     * @param end Domain end position as a multiple of its domain base.
+     */
+    public void close(long end) {
+        emit();
+        writer.close(end);
+    }
+
+    // ========================================================================================================================
+    // Buckets
+    // ========================================================================================================================
+
+    private boolean next(long position) {
+        if (rate > 0) {
+            // buckets on the position grid
+            long index = Math.floorDiv(position - start, bucketSize);
+            if (count > 0 && index == bucket)
+                return false;
+            emit();
+            bucket = index;
+        } else {
+            // buckets of consecutive samples
+            if (count > 0 && count < factor)
+                return false;
+            emit();
+        }
+        firstPosition = position;
+        return true;
+    }
+
+    private void emit() {
+        if (count == 0)
+            return;
+        long position = rate > 0 ? start + bucket * bucketSize : firstPosition;
+        switch (mode) {
+        case MODE_NTH:
+            put(position, first, longFirst);
+            break;
+        case MODE_AVERAGE:
+            put(position, sum / count, average());
+            break;
+        case MODE_MIN_MAX:
+            boolean minFirst = minPosition <= maxPosition;
+            put(rate > 0 ? position : Math.min(minPosition, maxPosition), minFirst ? min : max, minFirst ? longMin : longMax);
+            if (rate > 0)
+                put(position + bucketSize / 2, minFirst ? max : min, minFirst ? longMax : longMin);
+            else if (minPosition != maxPosition)
+                put(Math.max(minPosition, maxPosition), minFirst ? max : min, minFirst ? longMax : longMin);
+            break;
+        }
+        count = 0;
+        tag = false;
+        sum = 0;
+        longSum = 0;
+        longSumHigh = 0;
+    }
+
+    private long average() {
+        // exact average, rounded half up like Math.round
+        if (longSumHigh == longSum >> 63) {
+            long average = Math.floorDiv(longSum, count);
+            return 2 * Math.floorMod(longSum, count) >= count ? average + 1 : average;
+        }
+        BigInteger total = BigInteger.valueOf(longSumHigh).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(longSum)));
+        BigInteger[] division = total.divideAndRemainder(BigInteger.valueOf(count));
+        BigInteger average = division[1].signum() < 0 ? division[0].subtract(BigInteger.ONE) : division[0];
+        BigInteger remainder = division[1].signum() < 0 ? division[1].add(BigInteger.valueOf(count)) : division[1];
+        return (remainder.shiftLeft(1).compareTo(BigInteger.valueOf(count)) >= 0 ? average.add(BigInteger.ONE) : average).longValue();
+    }
+
+    private void put(long position, double value, long longValue) {
+        if (floats != null)
+            floats.write(position, tag, value);
+        else
+            integers.write(position, tag, longValue);
+    }
+}
@@ -0,0 +1,424 @@
+package de.toem.toolkits.pattern.element.serializer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import de.toem.toolkits.pattern.element.serializer.ICellSerializer.IInputRequest;
+
+/**
+ * Transparent streaming decompression of reader inputs.
+ *
+ * Compressed inputs (e.g. trace.vcd.gz) are detected by their magic bytes and decompressed while the
+ * reader parses, without a copy on disk:
+ * - decompression runs on its own thread and is overlapped with parsing (bounded read-ahead)
+ * - BGZF (blocked gzip, e.g. from bgzip) is decompressed block-parallel on several threads
+ * - plain gzip is decompressed sequentially (gzip members cannot be split)
+ * - other formats (zstd, xz, bzip2) are decompressed by registered decompressors
+ *
+ * <pre>
+ * HeaderBuffer header = new HeaderBuffer(in);
+ * InputStream input = Decompression.decompress(header, 0);
+ * if (input != null) {
+ *     header = new HeaderBuffer(input);                // probe the decompressed content
+ *     name = Decompression.strip(name);
+ * }
+ * ICellReader reader = ReaderProbe.probe(readers, name, contentType, cellType, header, executor);
+ * </pre>
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 101
+ */
+public class Decompression {
+
+    /** Not compressed */
+    public static final int NONE = 0;
+    /** gzip (RFC 1952) */
+    public static final int GZIP = 1;
+    /** Blocked gzip (bgzip), independent gzip members with block size */
+    public static final int BGZF = 2;
+    /** Zstandard */
+    public static final int ZSTD = 3;
+    /** xz */
+    public static final int XZ = 4;
+    /** bzip2 */
+    public static final int BZIP2 = 5;
+
+    private static final String[] NAMES = { "none", "gzip", "bgzf", "zstd", "xz", "bzip2" };
+    private static final String[][] EXTENSIONS = { {}, { ".gz", ".gzip" }, { ".bgz", ".gz" }, { ".zst", ".zstd" }, { ".xz" }, { ".bz2" } };
+
+    /** Number of decompressed buffers read ahead */
+    private static final int READ_AHEAD = 16;
+    private static final int BUFFER_SIZE = 256 << 10;
+    private static final byte[] END = new byte[0];
+
+    /**
+     * Decompressor of a compression format.
+     */
+    public interface IDecompressor {
+        /**
+         * Returns a stream of the decompressed data.
+         *
+         * @param in The compressed stream.
+         * @param threads Maximum number of decompression threads (for formats with independent frames).
+         * @return The decompressed stream.
+         * @throws IOException If the stream cannot be opened.
+         */
+        InputStream decompress(InputStream in, int threads) throws IOException;
+    }
+
+    private static final ConcurrentHashMap<Integer, IDecompressor> decompressors = new ConcurrentHashMap<>();
+
+    private Decompression() {
+    }
+
+    // ========================================================================================================================
+    // Detect
+    // ========================================================================================================================
+
+    /**
+     * Detects the compression format of an input by its magic bytes.
+     *
+     * @param inputRequest The input data source to be examined
+     * @return The format (NONE, GZIP, BGZF, ZSTD, XZ, BZIP2).
+     */
+    public static int detect(IInputRequest inputRequest) {
+        byte[] h = inputRequest.bytes(18);
+        if (h == null || h.length < 3)
+            return NONE;
+        if ((h[0] & 0xff) == 0x1f && (h[1] & 0xff) == 0x8b && h[2] == 8) {
+            if (h.length >= 16 && (h[3] & 4) != 0 && h[12] == 'B' && h[13] == 'C' && h[14] == 2 && h[15] == 0)
+                return BGZF;
+            return GZIP;
+        }
+        if (h.length >= 4 && (h[0] & 0xff) == 0x28 && (h[1] & 0xff) == 0xb5 && (h[2] & 0xff) == 0x2f && (h[3] & 0xff) == 0xfd)
+            return ZSTD;
+        if (h.length >= 4 && (h[0] & 0xf0) == 0x50 && (h[1] & 0xff) == 0x2a && (h[2] & 0xff) == 0x4d && (h[3] & 0xff) == 0x18)
+            return ZSTD; // skippable frame (e.g. seekable zstd)
+        if (h.length >= 6 && (h[0] & 0xff) == 0xfd && h[1] == '7' && h[2] == 'z' && h[3] == 'X' && h[4] == 'Z' && h[5] == 0)
+            return XZ;
+        if (h[0] == 'B' && h[1] == 'Z' && h[2] == 'h')
+            return BZIP2;
+        return NONE;
+    }
+
+    /**
+     * Returns the name of a format (e.g. "gzip").
+     */
+    public static String getName(int format) {
+        return format >= 0 && format < NAMES.length ? NAMES[format] : null;
+    }
+
+    /**
+     * Removes a compression extension from a file name (trace.vcd.gz -&gt; trace.vcd), so that the
+     * decompressed content can be probed by name.
+     *
+     * @param name The file name.
+     * @return The name without compression extension.
+     */
+    public static String strip(String name) {
+        if (name == null)
+            return null;
+        String lower = name.toLowerCase();
+        for (String[] extensions : EXTENSIONS)
+            for (String extension : extensions)
+                if (lower.endsWith(extension))
+                    return name.substring(0, name.length() - extension.length());
+        return name;
+    }
+
+    // ========================================================================================================================
+    // Decompressors
+    // ========================================================================================================================
+
+    /**
+     * Registers a decompressor for a format (e.g. ZSTD or XZ, provided by a plug-in with the codec library).
+     *
+     * @param format The format.
+     * @param decompressor The decompressor, or null to remove it.
+     */
+    public static void register(int format, IDecompressor decompressor) {
+        if (decompressor != null)
+            decompressors.put(format, decompressor);
+        else
+            decompressors.remove(format);
+    }
+
+    /**
+     * Returns true if inputs of the given format can be decompressed.
+     */
+    public static boolean isSupported(int format) {
+        return format == GZIP || format == BGZF || decompressors.containsKey(format);
+    }
+
+    // ========================================================================================================================
+    // Decompress
+    // ========================================================================================================================
+
+    /**
+     * Returns the decompressed stream of a buffered input, or null if the input is not compressed.
+     *
+     * @param header The header buffer of the input (created from a stream or a file channel).
+     * @param threads Maximum number of decompression threads (0 for number of processors).
+     * @return The decompressed stream, or null if the input is not compressed.
+     * @throws IOException If the format is not supported or the stream cannot be opened.
+     */
+    public static InputStream decompress(HeaderBuffer header, int threads) throws IOException {
+        int format = detect(header);
+        if (format == NONE)
+            return null;
+        return decompress(header.stream(), format, threads);
+    }
+
+    /**
+     * Returns the decompressed stream of a compressed input.
+     *
+     * @param in The compressed stream.
+     * @param format The format (see detect).
+     * @param threads Maximum number of decompression threads (0 for number of processors).
+     * @return The decompressed stream.
+     * @throws IOException If the format is not supported or the stream cannot be opened.
+     */
+    public static InputStream decompress(InputStream in, int format, int threads) throws IOException {
+        if (threads <= 0)
+            threads = Runtime.getRuntime().availableProcessors();
+        switch (format) {
+        case NONE:
+            return in;
+        case GZIP:
+            return new PipelinedStream(in, new GZIPInputStream(in, BUFFER_SIZE), 1);
+        case BGZF:
+            return new PipelinedStream(in, null, threads);
+        default:
+            IDecompressor decompressor = decompressors.get(format);
+            if (decompressor == null)
+                throw new IOException("No decompressor for " + getName(format) + " available");
+            return decompressor.decompress(in, threads);
+        }
+    }
+
+    // ========================================================================================================================
+    // Pipeline
+    // ========================================================================================================================
+
+    /**
+     * Stream of decompressed buffers, produced by a reader thread (and, for BGZF, an inflater pool).
+     */
+    private static class PipelinedStream extends InputStream {
+
+        private final InputStream source;
+        private final InputStream decompressed;
+        private final ExecutorService pool;
+        private final BlockingQueue<Future<byte[]>> queue = new ArrayBlockingQueue<>(READ_AHEAD);
+        private final Thread producer;
+        private byte[] current = new byte[0];
+        private int offset;
+        private volatile boolean closed;
+
+        PipelinedStream(InputStream source, InputStream decompressed, int threads) {
+            this.source = source;
+            this.decompressed = decompressed;
+            this.pool = decompressed == null ? Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "impulse-inflater");
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
+            this.producer = new Thread(this::produce, "impulse-decompression");
+            this.producer.setDaemon(true);
+            this.producer.start();
+        }
+
+        private void produce() {
+            try {
+                while (!closed) {
+                    Future<byte[]> buffer;
+                    if (decompressed != null) {
+                        byte[] data = readDecompressed();
+                        if (data == null)
+                            break;
+                        buffer = CompletableFuture.completedFuture(data);
+                    } else {
+                        byte[] block = readBlock(source);
+                        if (block == null)
+                            break;
+                        buffer = pool.submit(() -> inflate(block));
+                    }
+                    queue.put(buffer);
+                }
+                queue.put(CompletableFuture.completedFuture(END));
+            } catch (InterruptedException e) {
+                // closed
+            } catch (Throwable e) {
+                CompletableFuture<byte[]> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                try {
+                    queue.put(failed);
+                } catch (InterruptedException e1) {
+                    // closed
+                }
+            } finally {
+                // no more blocks, the submitted ones are still inflated
+                if (pool != null)
+                    pool.shutdown();
+            }
+        }
+
+        private byte[] readDecompressed() throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int filled = 0;
+            while (filled < buffer.length) {
+                int read = decompressed.read(buffer, filled, buffer.length - filled);
+                if (read < 0)
+                    break;
+                filled += read;
+            }
+            if (filled == 0)
+                return null;
+            if (filled < buffer.length) {
+                byte[] rest = new byte[filled];
+                System.arraycopy(buffer, 0, rest, 0, filled);
+                return rest;
+            }
+            return buffer;
+        }
+
+        private boolean next() throws IOException {
+            if (current == END)
+                return false;
+            try {
+                do {
+                    current = queue.take().get();
+                    offset = 0;
+                } while (current != END && current.length == 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+            return current != END;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (offset >= current.length && !next())
+                return -1;
+            return current[offset++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (offset >= current.length && !next())
+                return -1;
+            int n = Math.min(len, current.length - offset);
+            System.arraycopy(current, offset, b, off, n);
+            offset += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current.length - offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            producer.interrupt();
+            if (pool != null)
+                pool.shutdownNow();
+            queue.clear();
+            try {
+                if (decompressed != null)
+                    decompressed.close();
+            } finally {
+                source.close();
+            }
+        }
+    }
+
+    // ========================================================================================================================
+    // BGZF
+    // ========================================================================================================================
+
+    /**
+     * Reads one BGZF block (complete gzip member), or null at the end of the input.
+     */
+    private static byte[] readBlock(InputStream in) throws IOException {
+        byte[] header = new byte[18];
+        int read = readFully(in, header, 0, header.length);
+        if (read == 0)
+            return null;
+        if (read < header.length || (header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[12] != 'B' || header[13] != 'C')
+            throw new IOException("Invalid BGZF block");
+        int size = ((header[16] & 0xff) | (header[17] & 0xff) << 8) + 1;
+        byte[] block = new byte[size];
+        System.arraycopy(header, 0, block, 0, header.length);
+        if (readFully(in, block, header.length, size - header.length) < size - header.length)
+            throw new EOFException("Truncated BGZF block");
+        return block;
+    }
+
+    /**
+     * Inflates one BGZF block and verifies its checksum.
+     */
+    private static byte[] inflate(byte[] block) throws IOException {
+        int xlen = (block[10] & 0xff) | (block[11] & 0xff) << 8;
+        int start = 12 + xlen;
+        int end = block.length - 8;
+        int isize = (block[end + 4] & 0xff) | (block[end + 5] & 0xff) << 8 | (block[end + 6] & 0xff) << 16 | (block[end + 7] & 0xff) << 24;
+        long crc = ((block[end] & 0xff) | (block[end + 1] & 0xff) << 8 | (block[end + 2] & 0xff) << 16 | (long) (block[end + 3] & 0xff) << 24);
+        byte[] data = new byte[isize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, start, end - start);
+            int n = 0;
+            while (n < isize && !inflater.finished()) {
+                int inflated = inflater.inflate(data, n, isize - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                n += inflated;
+            }
+            if (n != isize)
+                throw new IOException("Corrupt BGZF block");
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt BGZF block", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        if (crc32.getValue() != crc)
+            throw new IOException("BGZF checksum mismatch");
+        return data;
+    }
+
+    private static int readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            int read = in.read(b, off + n, len - n);
+            if (read < 0)
+                break;
+            n += read;
+        }
+        return n;
+    }
+}
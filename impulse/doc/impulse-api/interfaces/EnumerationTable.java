@@ -0,0 +1,316 @@
+package de.toem.impulse.samples.raw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import de.toem.impulse.samples.ISamplesLegend;
+
+/**
+ * Lookup table for the enumerations of one enumeration group or member.
+ *
+ * The table maps enumeration values to their labels and labels back to their values in constant time.
+ * Small non-negative values (the usual case for state machines and event types) are stored in a dense
+ * array indexed by value; all other values are stored in an open-addressing int map. Labels are
+ * resolved through a reverse label index.
+ *
+ * Key features of this class include:
+ * - O(1) value-to-enumeration lookup for formatting (e.g. enumValueAt, formatAt)
+ * - O(1) label-to-enumeration lookup for search and expressions
+ * - Incremental update from the enumeration lists of a legend (in any order)
+ * - Shared tables per legend and enumeration group or member (see cached), rebuilt when the legend or samples change
+ *
+ * Tables are not synchronized; the owner of the table (e.g. a samples legend) needs to guard updates
+ * that may run concurrently with lookups. Shared tables returned by cached are never updated and must not be
+ * modified by the caller.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 79
+ */
+public class EnumerationTable {
+
+    /** Values below this limit are stored in the dense array */
+    public static final int DENSE_LIMIT = 1 << 16;
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private final int domain;
+    private Enumeration[] dense = new Enumeration[16];
+    private int[] sparseKeys;
+    private Enumeration[] sparseValues;
+    private int sparseSize;
+    private Enumeration minValue;
+    private final Map<String, Enumeration> byLabel = new HashMap<>();
+    private final Map<Integer, Enumeration> all = new LinkedHashMap<>();
+    private List<Enumeration> list;
+
+    /** Shared tables per legend, dropped with the legend */
+    private static final Map<ISamplesLegend, Cached> CACHE = new WeakHashMap<>();
+
+    private static final class Cached {
+        long legendRelease;
+        long samplesRelease;
+        final Map<Integer, EnumerationTable> groups = new HashMap<>();
+        final Map<Integer, EnumerationTable> members = new HashMap<>();
+    }
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates an empty table for the given enumeration group.
+     *
+     * @param domain The enumeration group (e.g. ISample.ENUM_GLOBAL) or member id.
+     */
+    public EnumerationTable(int domain) {
+        this.domain = domain;
+    }
+
+    /**
+     * Creates a table containing the given enumerations.
+     *
+     * @param domain The enumeration group (e.g. ISample.ENUM_GLOBAL) or member id.
+     * @param enums The enumerations to add, or null.
+     * @return The new table.
+     */
+    public static EnumerationTable of(int domain, List<Enumeration> enums) {
+        EnumerationTable table = new EnumerationTable(domain);
+        table.update(enums);
+        return table;
+    }
+
+    /**
+     * Returns the shared table of an enumeration group or member of a legend, creating it on first use.
+     * The table is kept until the release of the legend or of the samples changes, so repeated calls for unchanged
+     * samples cost a map lookup. The samples release is needed as well, because legends backed by memory pages
+     * keep their release while enumerations are flushed. The returned table must not be modified.
+     *
+     * @param legend The legend, or null to create an unshared table.
+     * @param release The release of the samples owning the legend (see ISamplesCharacteristic.getRelease).
+     * @param member True if domain is a member id, false if it is an enumeration group.
+     * @param domain The enumeration group (e.g. ISample.ENUM_GLOBAL) or member id.
+     * @param enums Supplies the current enumerations if the table needs to be built.
+     * @return The shared table.
+     */
+    public static EnumerationTable cached(ISamplesLegend legend, long release, boolean member, int domain,
+            Supplier<List<Enumeration>> enums) {
+        if (legend == null)
+            return of(domain, enums.get());
+        long legendRelease = legend.getRelease();
+        synchronized (CACHE) {
+            Cached cached = CACHE.get(legend);
+            if (cached != null && cached.legendRelease == legendRelease && cached.samplesRelease == release) {
+                EnumerationTable table = (member ? cached.members : cached.groups).get(domain);
+                if (table != null)
+                    return table;
+            }
+        }
+
+        // build outside the lock, the supplier may lock the legend
+        EnumerationTable table = of(domain, enums.get());
+        synchronized (CACHE) {
+            Cached cached = CACHE.get(legend);
+            if (cached == null || cached.legendRelease != legendRelease || cached.samplesRelease != release) {
+                cached = new Cached();
+                cached.legendRelease = legendRelease;
+                cached.samplesRelease = release;
+                CACHE.put(legend, cached);
+            }
+            EnumerationTable current = (member ? cached.members : cached.groups).putIfAbsent(domain, table);
+            return current != null ? current : table;
+        }
+    }
+
+    // ========================================================================================================================
+    // Update
+    // ========================================================================================================================
+
+    /**
+     * Adds or replaces an enumeration.
+     *
+     * @param enumeration The enumeration to add.
+     * @return The given enumeration.
+     */
+    public Enumeration put(Enumeration enumeration) {
+        int value = enumeration.value;
+        Enumeration previous;
+        if (value >= 0 && value < DENSE_LIMIT) {
+            if (value >= dense.length)
+                dense = Arrays.copyOf(dense, Math.min(DENSE_LIMIT, Math.max(value + 1, dense.length * 2)));
+            previous = dense[value];
+            dense[value] = enumeration;
+        } else
+            previous = putSparse(value, enumeration);
+        if (previous != null && previous.label != null && byLabel.get(previous.label) == previous)
+            byLabel.remove(previous.label);
+        // a replaced value keeps its insertion position
+        all.put(value, enumeration);
+        list = null;
+        if (enumeration.label != null)
+            byLabel.put(enumeration.label, enumeration);
+        return enumeration;
+    }
+
+    /**
+     * Adds or replaces an enumeration.
+     *
+     * @param value The enumeration value.
+     * @param label The enumeration label.
+     * @return The new enumeration.
+     */
+    public Enumeration put(int value, String label) {
+        return put(new Enumeration(domain, value, label));
+    }
+
+    /**
+     * Adds all enumerations of a list that are new or have a new label. The list may be in any order (legends
+     * return their enumerations in hash order); each entry is checked by its value in constant time.
+     *
+     * @param enums The enumeration list, or null.
+     * @return This table.
+     */
+    public EnumerationTable update(List<Enumeration> enums) {
+        if (enums != null)
+            for (Enumeration enumeration : enums) {
+                Enumeration current = get(enumeration.value);
+                if (current == null || current != enumeration && !Objects.equals(current.label, enumeration.label))
+                    put(enumeration);
+            }
+        return this;
+    }
+
+    // ========================================================================================================================
+    // Lookup
+    // ========================================================================================================================
+
+    /**
+     * Returns the enumeration for the given value.
+     *
+     * @param value The enumeration value.
+     * @return The enumeration, or null if not defined.
+     */
+    public Enumeration get(int value) {
+        if (value >= 0 && value < DENSE_LIMIT)
+            return value < dense.length ? dense[value] : null;
+        return getSparse(value);
+    }
+
+    /**
+     * Returns the enumeration for the given label.
+     *
+     * @param label The enumeration label (case-sensitive).
+     * @return The enumeration, or null if not defined.
+     */
+    public Enumeration get(String label) {
+        return label != null ? byLabel.get(label) : null;
+    }
+
+    /**
+     * Returns the label for the given value.
+     *
+     * @param value The enumeration value.
+     * @return The label, or null if not defined.
+     */
+    public String labelOf(int value) {
+        Enumeration enumeration = get(value);
+        return enumeration != null ? enumeration.label : null;
+    }
+
+    /**
+     * Returns the enumeration group or member id of this table.
+     */
+    public int getDomain() {
+        return domain;
+    }
+
+    /**
+     * Returns the number of enumerations in this table.
+     */
+    public int size() {
+        return all.size();
+    }
+
+    /**
+     * Returns all enumerations in insertion order (unmodifiable).
+     */
+    public List<Enumeration> getEnums() {
+        if (list == null)
+            list = Collections.unmodifiableList(new ArrayList<>(all.values()));
+        return list;
+    }
+
+    // ========================================================================================================================
+    // Sparse values
+    // ========================================================================================================================
+
+    private Enumeration getSparse(int value) {
+        if (value == FREE)
+            return minValue;
+        int[] keys = sparseKeys;
+        if (keys == null)
+            return null;
+        int mask = keys.length - 1;
+        for (int n = mix(value) & mask;; n = (n + 1) & mask) {
+            if (keys[n] == value)
+                return sparseValues[n];
+            if (keys[n] == FREE)
+                return null;
+        }
+    }
+
+    private Enumeration putSparse(int value, Enumeration enumeration) {
+        if (value == FREE) {
+            Enumeration previous = minValue;
+            minValue = enumeration;
+            return previous;
+        }
+        if (sparseKeys == null || (sparseSize + 1) * 2 > sparseKeys.length)
+            rehash(sparseKeys == null ? 16 : sparseKeys.length * 2);
+        int mask = sparseKeys.length - 1;
+        for (int n = mix(value) & mask;; n = (n + 1) & mask) {
+            if (sparseKeys[n] == value) {
+                Enumeration previous = sparseValues[n];
+                sparseValues[n] = enumeration;
+                return previous;
+            }
+            if (sparseKeys[n] == FREE) {
+                sparseValues[n] = enumeration;
+                sparseKeys[n] = value;
+                sparseSize++;
+                return null;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] keys = new int[capacity];
+        Enumeration[] values = new Enumeration[capacity];
+        Arrays.fill(keys, FREE);
+        int mask = capacity - 1;
+        if (sparseKeys != null)
+            for (int i = 0; i < sparseKeys.length; i++)
+                if (sparseKeys[i] != FREE) {
+                    int n = mix(sparseKeys[i]) & mask;
+                    while (keys[n] != FREE)
+                        n = (n + 1) & mask;
+                    keys[n] = sparseKeys[i];
+                    values[n] = sparseValues[i];
+                }
+        sparseValues = values;
+        sparseKeys = keys;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,180 @@
+package de.toem.impulse.serializer;
+
+import de.toem.impulse.samples.Instrumentation;
+
+/**
+ * Adaptive flush scheduling for record readers.
+ *
+ * Readers used to flush after a fixed number of samples (e.g. every 100 samples). Each flush notifies
+ * the listeners and may repaint views, which dominates the cost of fast readers, while slow readers
+ * flush too rarely. The FlushScheduler flushes by elapsed time and by written bytes instead:
+ * - the first call flushes immediately (content becomes visible as early as possible)
+ * - later calls flush if the interval (default 250ms) elapsed or the byte limit (default 4MB) was exceeded
+ * - the clock is read adaptively: every call for slow readers, only every few calls (up to 16) for fast readers,
+ *   so maybeFlush is cheap enough to be called for each sample
+ * - changed(CHANGED_SIGNALS, current) calls are coalesced: the flush receives the highest position reported so far
+ * - each flush is recorded as Instrumentation.EVENT_FLUSH event
+ *
+ * The flush itself is provided by the reader, usually as a lambda created once per parse:
+ *
+ * <pre>
+ * FlushScheduler scheduler = new FlushScheduler(position -&gt; {
+ *     changed(CHANGED_SIGNALS, position);
+ *     flushAndSetProgress(progress);
+ * });
+ * ...
+ * writer.write(current, false, value);
+ * scheduler.maybeFlush(current);
+ * </pre>
+ *
+ * A scheduler belongs to one parsing thread and is not synchronized.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 87
+ */
+public class FlushScheduler {
+
+    /** Default maximum time between flushes in milliseconds */
+    public static final long DEFAULT_INTERVAL = 250;
+
+    /** Default maximum number of bytes between flushes */
+    public static final long DEFAULT_BYTES = 4 << 20;
+
+    /** Maximum number of calls between two clock reads */
+    private static final int MAX_STRIDE = 16;
+
+    /**
+     * Flush operation of a reader.
+     */
+    public interface IFlush {
+        /**
+         * Flushes the reader.
+         *
+         * @param position The highest position reported so far.
+         */
+        void flush(long position);
+    }
+
+    private final IFlush flush;
+    private final long interval;
+    private final long bytesLimit;
+    private long last = Long.MIN_VALUE;
+    private long position = Long.MIN_VALUE;
+    private long checked;
+    private long bytes;
+    private int stride = 1;
+    private int countdown;
+    private boolean pending;
+    private long flushes;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a scheduler with the default interval and byte limit.
+     *
+     * @param flush The flush operation of the reader.
+     */
+    public FlushScheduler(IFlush flush) {
+        this(flush, DEFAULT_INTERVAL, DEFAULT_BYTES);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param flush The flush operation of the reader.
+     * @param interval Maximum time between flushes in milliseconds.
+     * @param bytes Maximum number of written bytes between flushes (0 to ignore bytes).
+     */
+    public FlushScheduler(IFlush flush, long interval, long bytes) {
+        this.flush = flush;
+        this.interval = interval * 1000000L;
+        this.bytesLimit = bytes;
+    }
+
+    // ========================================================================================================================
+    // Flush
+    // ========================================================================================================================
+
+    /**
+     * Reports a written sample and flushes if due.
+     *
+     * @param current The current position (domain units).
+     * @return true if flushed.
+     */
+    public boolean maybeFlush(long current) {
+        if (current > position || position == Long.MIN_VALUE)
+            position = current;
+        pending = true;
+        if (--countdown > 0)
+            return false;
+        return check();
+    }
+
+    /**
+     * Reports written bytes and flushes if due.
+     *
+     * @param current The current position (domain units).
+     * @param written The number of bytes written or consumed since the last call.
+     * @return true if flushed.
+     */
+    public boolean maybeFlush(long current, long written) {
+        bytes += written;
+        if (bytesLimit > 0 && bytes >= bytesLimit) {
+            if (current > position || position == Long.MIN_VALUE)
+                position = current;
+            pending = true;
+            return flush();
+        }
+        return maybeFlush(current);
+    }
+
+    /**
+     * Flushes pending changes now (e.g. before closing the reader).
+     *
+     * @return true if there were pending changes.
+     */
+    public boolean flush() {
+        if (!pending)
+            return false;
+        pending = false;
+        bytes = 0;
+        stride = 1;
+        countdown = 0;
+        last = checked = System.nanoTime();
+        flushes++;
+        Instrumentation.IEvent event = Instrumentation.begin(Instrumentation.EVENT_FLUSH);
+        try {
+            flush.flush(position);
+        } finally {
+            event.commit(null, null);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of flushes so far.
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    private boolean check() {
+        if (last == Long.MIN_VALUE)
+            return flush();
+        long now = System.nanoTime();
+        if (now - last >= interval)
+            return flush();
+
+        // read the clock less often if calls are frequent, on each call if they slow down
+        if (now - checked < (interval >> 4))
+            stride = Math.min(stride << 1, MAX_STRIDE);
+        else
+            stride = 1;
+        countdown = stride;
+        checked = now;
+        return false;
+    }
+}
@@ -0,0 +1,175 @@
+package de.toem.impulse.samples;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of formatted sample values for one signal.
+ *
+ * Table and diagram views format the samples of all visible cells on every repaint. This cache keeps
+ * the formatted strings keyed by sample index and format, so scrolling and repainting does not
+ * reformat wide vectors and big integers again and again.
+ *
+ * Key features of this class include:
+ * - Fixed capacity, allocation-free lookup (2-way set associative, least recently used entry is replaced)
+ * - Automatic invalidation when the release of the signal changes in a non-monotonous way
+ * - Entries survive monotonous extensions of volatile signals (samples only appended)
+ *
+ * A cache instance belongs to one signal and one thread (usually the rendering thread of a view).
+ * It is not synchronized.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 81
+ */
+public class FormattedValueCache {
+
+    /** Default number of cached values */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** Placeholder for the default format of a sample */
+    private static final String DEFAULT_FORMAT = "";
+
+    private final IReadableSamples samples;
+    private final int mask;
+    private final int[] indices;
+    private final String[] formats;
+    private final String[] values;
+    private final boolean[] recent;
+    private long release;
+    private long hits;
+    private long misses;
+    private final Instrumentation.Counters counters = Instrumentation.ENABLED ? Instrumentation.counters(null) : null;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a cache with the default capacity.
+     *
+     * @param samples The samples to be formatted.
+     */
+    public FormattedValueCache(IReadableSamples samples) {
+        this(samples, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache with the given capacity.
+     *
+     * @param samples The samples to be formatted.
+     * @param capacity The maximum number of cached values (rounded up to a power of 2, minimum 16).
+     */
+    public FormattedValueCache(IReadableSamples samples, int capacity) {
+        this.samples = samples;
+        int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        this.mask = (size >> 1) - 1;
+        this.indices = new int[size];
+        this.formats = new String[size];
+        this.values = new String[size];
+        this.recent = new boolean[size >> 1];
+        this.release = samples.getRelease();
+    }
+
+    // ========================================================================================================================
+    // Format
+    // ========================================================================================================================
+
+    /**
+     * Returns the formatted value of the sample at the given index.
+     * Equivalent to IReadableSamples.formatAt(idx, format), but served from the cache if possible.
+     *
+     * @param idx the sample index (0..getCount()-1)
+     * @param format format specifier string as defined in ISample (e.g., "hex", "dec")
+     * @return formatted string representation of the sample value
+     */
+    public String formatAt(int idx, String format) {
+        return lookup(idx, format != null ? format : DEFAULT_FORMAT);
+    }
+
+    /**
+     * Returns the value of the sample at the given index using its default format (see IReadableSamples.defaultFormatAt).
+     *
+     * @param idx the sample index (0..getCount()-1)
+     * @return formatted string representation of the sample value
+     */
+    public String formatDefaultAt(int idx) {
+        return lookup(idx, DEFAULT_FORMAT);
+    }
+
+    public String fhexAt(int idx) {
+        return lookup(idx, ISample.FORMAT_HEXADECIMAL);
+    }
+
+    public String fdecAt(int idx) {
+        return lookup(idx, ISample.FORMAT_DECIMAL);
+    }
+
+    public String fbinAt(int idx) {
+        return lookup(idx, ISample.FORMAT_BINARY);
+    }
+
+    // ========================================================================================================================
+    // Cache
+    // ========================================================================================================================
+
+    /**
+     * Removes all cached values.
+     */
+    public void clear() {
+        Arrays.fill(formats, null);
+        Arrays.fill(values, null);
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that needed to format the sample.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    private String lookup(int idx, String format) {
+        validate();
+        int set = mix(idx, format) & mask;
+        int slot = set << 1;
+        for (int way = 0; way < 2; way++, slot++)
+            if (indices[slot] == idx && values[slot] != null && format.equals(formats[slot])) {
+                recent[set] = way == 1;
+                hits++;
+                if (Instrumentation.ENABLED)
+                    counters.increment(Instrumentation.CACHE_HITS);
+                return values[slot];
+            }
+        misses++;
+        if (Instrumentation.ENABLED)
+            counters.increment(Instrumentation.CACHE_MISSES);
+        String value = format == DEFAULT_FORMAT ? samples.formatAt(idx, samples.defaultFormatAt(idx)) : samples.formatAt(idx, format);
+        int way = recent[set] ? 0 : 1;
+        slot = (set << 1) + way;
+        indices[slot] = idx;
+        formats[slot] = format;
+        values[slot] = value;
+        recent[set] = way == 1;
+        return value;
+    }
+
+    private void validate() {
+        long current = samples.getRelease();
+        if (current != release) {
+            if (!samples.isMonotonous(release))
+                clear();
+            release = current;
+        }
+    }
+
+    private static int mix(int idx, String format) {
+        int h = idx * 0x9E3779B9 + format.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
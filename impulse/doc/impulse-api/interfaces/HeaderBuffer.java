@@ -0,0 +1,239 @@
+package de.toem.toolkits.pattern.element.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import de.toem.toolkits.pattern.element.serializer.ICellSerializer.IInputRequest;
+
+/**
+ * Shared header buffer for format detection.
+ *
+ * When an input is opened, every registered reader is asked isApplicable(name, contentType, cellType, inputRequest),
+ * and each probe reads the beginning of the input with text(size) or bytes(size). Reading the input once per probe
+ * is expensive on slow file systems (e.g. NFS). The HeaderBuffer serves all probes from one buffer instead:
+ * - the buffer is filled lazily and only grows if a probe requests more than has been read (power of 2 steps)
+ * - file channels are memory-mapped; streams are read once, and the consumed header is replayed by stream()
+ * - the buffer is thread-safe, so probes can run in parallel (see ReaderProbe)
+ * - once stream() has been taken, the buffer of a stream is frozen: probes still running only see the bytes
+ *   buffered so far and never consume the input of the reader that parses the stream
+ *
+ * <pre>
+ * HeaderBuffer header = new HeaderBuffer(channel, null);  // or new HeaderBuffer(in)
+ * ICellReader reader = ReaderProbe.probe(readers, name, contentType, cellType, header, executor);
+ * </pre>
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 97
+ */
+public class HeaderBuffer implements IInputRequest {
+
+    /** Minimum number of bytes read on first access */
+    public static final int INITIAL_SIZE = 4096;
+
+    /** Maximum size of the header buffer */
+    public static final int MAX_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final long origin;
+    private final InputStream in;
+    private final String charSet;
+    private volatile ByteBuffer buffer = ByteBuffer.allocate(0);
+    private volatile boolean eof;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a header buffer for a file channel, starting at the current channel position.
+     * The header is memory-mapped; the channel position is not changed.
+     *
+     * @param channel The file channel.
+     * @param charSet The character set of the input (null for default).
+     * @throws IOException If the channel position cannot be read.
+     */
+    public HeaderBuffer(FileChannel channel, String charSet) throws IOException {
+        this.channel = channel;
+        this.origin = channel.position();
+        this.in = null;
+        this.charSet = charSet;
+    }
+
+    /**
+     * Creates a header buffer for a stream. The stream is read on demand; use stream() to
+     * parse the input including the buffered header.
+     *
+     * @param in The input stream.
+     */
+    public HeaderBuffer(InputStream in) {
+        this.channel = null;
+        this.origin = 0;
+        this.in = in;
+        this.charSet = in instanceof IUriStream ? ((IUriStream) in).getCharSet() : null;
+    }
+
+    // ========================================================================================================================
+    // Input Request
+    // ========================================================================================================================
+
+    @Override
+    public String text(int size) {
+        return text(size, null);
+    }
+
+    @Override
+    public String text(int size, String charSet) {
+        ByteBuffer header = header(size);
+        int length = Math.max(0, Math.min(size, header.limit()));
+        byte[] bytes = new byte[length];
+        header.duplicate().get(bytes);
+        if (charSet == null)
+            charSet = this.charSet;
+        if (charSet == null || charSet.isEmpty())
+            return new String(bytes);
+        try {
+            return new String(bytes, Charset.forName(charSet));
+        } catch (IllegalArgumentException e) {
+            return new String(bytes);
+        }
+    }
+
+    @Override
+    public byte[] bytes(int size) {
+        ByteBuffer header = header(size);
+        int length = Math.max(0, Math.min(size, header.limit()));
+        byte[] bytes = new byte[length];
+        header.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public String charSet() {
+        return charSet;
+    }
+
+    // ========================================================================================================================
+    // Buffer
+    // ========================================================================================================================
+
+    /**
+     * Returns a read-only view of at least the given number of header bytes (less at the end of the input).
+     *
+     * @param size The requested number of bytes.
+     * @return The header, positioned at 0.
+     */
+    public ByteBuffer header(int size) {
+        ByteBuffer header = buffer;
+        if (header.limit() < size && !eof)
+            header = grow(size);
+        return header.duplicate();
+    }
+
+    /**
+     * Returns the number of bytes buffered so far.
+     */
+    public int getSize() {
+        return buffer.limit();
+    }
+
+    /**
+     * Returns a stream of the complete input, starting with the buffered header. For stream based buffers, the
+     * buffer is frozen: later requests are served from the bytes buffered so far (the input belongs to the stream).
+     * For channel based buffers, the stream reads the channel from the header start with positional reads; the
+     * channel position is not changed, and closing the stream does not close the channel. Readers parsing a
+     * channel use the channel itself; the stream is meant for consumers of streams (e.g. Decompression).
+     *
+     * @return The input stream.
+     */
+    public synchronized InputStream stream() {
+        if (in == null)
+            return new ChannelStream(channel, origin);
+        eof = true;
+        ByteBuffer header = buffer;
+        byte[] bytes = new byte[header.limit()];
+        header.duplicate().get(bytes);
+        return bytes.length > 0 ? new SequenceInputStream(new ByteArrayInputStream(bytes), in) : in;
+    }
+
+    private synchronized ByteBuffer grow(int size) {
+        ByteBuffer header = buffer;
+        if (header.limit() >= size || eof)
+            return header;
+        int capacity = Math.min(MAX_SIZE, Math.max(INITIAL_SIZE, Integer.highestOneBit(Math.max(1, size - 1)) << 1));
+        try {
+            if (channel != null) {
+                long length = Math.min(capacity, Math.max(0, channel.size() - origin));
+                header = channel.map(FileChannel.MapMode.READ_ONLY, origin, length);
+                eof = length < capacity;
+            } else {
+                byte[] bytes = new byte[capacity];
+                header.duplicate().get(bytes, 0, header.limit());
+                int filled = header.limit();
+                while (filled < capacity) {
+                    int read = in.read(bytes, filled, capacity - filled);
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    filled += read;
+                }
+                header = ByteBuffer.wrap(bytes, 0, filled).slice();
+            }
+        } catch (IOException e) {
+            eof = true;
+        }
+        if (capacity >= MAX_SIZE)
+            eof = true;
+        buffer = header;
+        return header;
+    }
+
+    // ========================================================================================================================
+    // Channel stream
+    // ========================================================================================================================
+
+    private static final class ChannelStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+
+        ChannelStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) > 0 ? one[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            int read = channel.read(ByteBuffer.wrap(b, off, len), position);
+            if (read > 0)
+                position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = Math.max(0, Math.min(n, channel.size() - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, channel.size() - position));
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package de.toem.toolkits.pattern.element.producer;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 import de.toem.toolkits.pattern.element.ICell;
 import de.toem.toolkits.pattern.element.ICover;
@@ -119,15 +123,244 @@ public interface ICellProducer extends ICellProducerDescriptor.DescriptedObject
         void flushed(ICellProducer producer, ICover cover, int changed);
     }
 
-    class ProducerProgress extends Progress implements IFlushListener {
+    /**
+     * Receiver of live producer metrics. Implemented by ProducerProgress and PartialProducerProgress;
+     * producers check the progress with instanceof and report while parsing.
+     */
+    interface ITelemetry {
+
+        /**
+         * Reports consumed input bytes (delta since the last report).
+         */
+        void consumed(long bytes);
+
+        /**
+         * Reports produced samples (delta since the last report).
+         */
+        void produced(long samples);
+
+        /**
+         * Reports the current domain position and the expected end position (in domain units).
+         * 
+         * @param current The current position.
+         * @param end The expected end position, or Long.MIN_VALUE if unknown.
+         */
+        void position(long current, long end);
+
+        /**
+         * Sets the total number of input bytes, if known (e.g. the file size).
+         */
+        void total(long bytes);
+
+        /**
+         * Reports the state of the ingestion queue of a live producer (see IngestionQueue).
+         * 
+         * @param depth The number of queued entries.
+         * @param capacity The capacity of the queue.
+         * @param dropped The number of dropped entries (cumulative).
+         */
+        void queue(int depth, int capacity, long dropped);
+
+        /**
+         * Returns a snapshot of the current metrics.
+         */
+        ProducerTelemetry getTelemetry();
+
+        /**
+         * Wraps an input stream to report consumed bytes to the given progress, if it supports telemetry.
+         * 
+         * @param progress The progress of the producer (may be null).
+         * @param in The input stream.
+         * @return A counting stream, or the given stream if the progress does not support telemetry.
+         */
+        static InputStream track(IProgress progress, InputStream in) {
+            if (!(progress instanceof ITelemetry) || in == null)
+                return in;
+            ITelemetry telemetry = (ITelemetry) progress;
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0)
+                        telemetry.consumed(1);
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0)
+                        telemetry.consumed(n);
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    if (skipped > 0)
+                        telemetry.consumed(skipped);
+                    return skipped;
+                }
+            };
+        }
+    }
+
+    /**
+     * Immutable snapshot of the live metrics of a producer (see ITelemetry).
+     * Can be polled at any time from any thread, e.g. by IFlushListener.flushed subscribers or a UI timer.
+     */
+    final class ProducerTelemetry {
+
+        /** Consumed input bytes */
+        public final long bytesConsumed;
+        /** Total input bytes, or -1 if unknown */
+        public final long bytesTotal;
+        /** Produced samples */
+        public final long samples;
+        /** Current domain position, or Long.MIN_VALUE if unknown */
+        public final long position;
+        /** Expected end position, or Long.MIN_VALUE if unknown */
+        public final long end;
+        /** Fraction done (0..1), or -1 if unknown */
+        public final double done;
+        /** Milliseconds since start */
+        public final long elapsed;
+        /** Milliseconds since the last reported metric (large values indicate a stuck producer) */
+        public final long idle;
+        /** Entries in the ingestion queue */
+        public final int queueDepth;
+        /** Capacity of the ingestion queue, or 0 if the producer has no queue */
+        public final int queueCapacity;
+        /** Entries dropped by the ingestion queue */
+        public final long dropped;
+
+        public ProducerTelemetry(long bytesConsumed, long bytesTotal, long samples, long position, long end, double done, long elapsed, long idle) {
+            this(bytesConsumed, bytesTotal, samples, position, end, done, elapsed, idle, 0, 0, 0);
+        }
+
+        public ProducerTelemetry(long bytesConsumed, long bytesTotal, long samples, long position, long end, double done, long elapsed, long idle,
+                int queueDepth, int queueCapacity, long dropped) {
+            this.bytesConsumed = bytesConsumed;
+            this.bytesTotal = bytesTotal;
+            this.samples = samples;
+            this.position = position;
+            this.end = end;
+            this.done = done;
+            this.elapsed = elapsed;
+            this.idle = idle;
+            this.queueDepth = queueDepth;
+            this.queueCapacity = queueCapacity;
+            this.dropped = dropped;
+        }
+
+        /**
+         * Returns the average input throughput in bytes per second.
+         */
+        public double getBytesPerSecond() {
+            return elapsed > 0 ? bytesConsumed * 1000.0 / elapsed : 0;
+        }
+
+        /**
+         * Returns the average number of samples produced per second.
+         */
+        public double getSamplesPerSecond() {
+            return elapsed > 0 ? samples * 1000.0 / elapsed : 0;
+        }
+
+        /**
+         * Returns the fraction done (0..1), derived from input bytes, domain position or reported progress, or -1 if unknown.
+         */
+        public double getFraction() {
+            if (bytesTotal > 0)
+                return Math.min(1, (double) bytesConsumed / bytesTotal);
+            if (end != Long.MIN_VALUE && position != Long.MIN_VALUE && end > 0)
+                return Math.min(1, Math.max(0, (double) position / end));
+            return done;
+        }
+
+        /**
+         * Returns the estimated remaining time in milliseconds, or -1 if unknown.
+         */
+        public long getRemaining() {
+            double fraction = getFraction();
+            if (fraction <= 0 || elapsed <= 0)
+                return -1;
+            return (long) (elapsed * (1 - fraction) / fraction);
+        }
+
+        /**
+         * Returns the fill level of the ingestion queue (0..1), or 0 if the producer has no queue.
+         */
+        public double getQueueLoad() {
+            return queueCapacity > 0 ? (double) queueDepth / queueCapacity : 0;
+        }
+
+        @Override
+        public String toString() {
+            String text = String.format(java.util.Locale.ROOT, "%d bytes (%.1f MB/s), %d samples (%.0f/s), %.1f%%, eta %d ms, idle %d ms", bytesConsumed,
+                    getBytesPerSecond() / 1048576.0, samples, getSamplesPerSecond(), getFraction() * 100, getRemaining(), idle);
+            return queueCapacity > 0 ? text + String.format(java.util.Locale.ROOT, ", queue %d/%d, dropped %d", queueDepth, queueCapacity, dropped) : text;
+        }
+    }
+
+    class ProducerProgress extends Progress implements IFlushListener, ITelemetry {
 
         private IFlushListener listener;
+        private final long started = System.currentTimeMillis();
+        private volatile long updated = started;
+        private final LongAdder bytesConsumed = new LongAdder();
+        private volatile long bytesTotal = -1;
+        private final LongAdder samples = new LongAdder();
+        private volatile long position = Long.MIN_VALUE;
+        private volatile long end = Long.MIN_VALUE;
+        private volatile int queueDepth;
+        private volatile int queueCapacity;
+        private volatile long dropped;
 
         public ProducerProgress(String label, IFlushListener listener) {
             super(label);
             this.listener = listener;
         }
 
+        // partial producers report concurrently through PartialProducerProgress: counters are adders
+        @Override
+        public void consumed(long bytes) {
+            bytesConsumed.add(bytes);
+            updated = System.currentTimeMillis();
+        }
+
+        @Override
+        public void produced(long samples) {
+            this.samples.add(samples);
+            updated = System.currentTimeMillis();
+        }
+
+        @Override
+        public void position(long current, long end) {
+            this.position = current;
+            this.end = end;
+            updated = System.currentTimeMillis();
+        }
+
+        @Override
+        public void total(long bytes) {
+            this.bytesTotal = bytes;
+        }
+
+        @Override
+        public void queue(int depth, int capacity, long dropped) {
+            this.queueDepth = depth;
+            this.queueCapacity = capacity;
+            this.dropped = dropped;
+        }
+
+        @Override
+        public ProducerTelemetry getTelemetry() {
+            long now = System.currentTimeMillis();
+            return new ProducerTelemetry(bytesConsumed.sum(), bytesTotal, samples.sum(), position, end, hasDone(), now - started, now - updated, queueDepth,
+                    queueCapacity, dropped);
+        }
+
         @Override
         public void flushed(ICellProducer generator, ICover cover, int changed) {
             if (listener != null)
@@ -147,11 +380,45 @@ public interface ICellProducer extends ICellProducerDescriptor.DescriptedObject
 
     }
 
-    class PartialProducerProgress extends PartialProgress implements IFlushListener {
+    class PartialProducerProgress extends PartialProgress implements IFlushListener, ITelemetry {
         public PartialProducerProgress(ProducerProgress progress, double partial) {
             super(progress, partial);
         }
 
+        @Override
+        public void consumed(long bytes) {
+            if (getReference() instanceof ITelemetry)
+                ((ITelemetry) getReference()).consumed(bytes);
+        }
+
+        @Override
+        public void produced(long samples) {
+            if (getReference() instanceof ITelemetry)
+                ((ITelemetry) getReference()).produced(samples);
+        }
+
+        @Override
+        public void position(long current, long end) {
+            if (getReference() instanceof ITelemetry)
+                ((ITelemetry) getReference()).position(current, end);
+        }
+
+        @Override
+        public void total(long bytes) {
+            // the total of a partial input is not the total of the producer
+        }
+
+        @Override
+        public void queue(int depth, int capacity, long dropped) {
+            if (getReference() instanceof ITelemetry)
+                ((ITelemetry) getReference()).queue(depth, capacity, dropped);
+        }
+
+        @Override
+        public ProducerTelemetry getTelemetry() {
+            return getReference() instanceof ITelemetry ? ((ITelemetry) getReference()).getTelemetry() : null;
+        }
+
         @Override
         public void flushed(ICellProducer generator, ICover cover, int changed) {
             ((IFlushListener) getReference()).flushed(generator, cover, changed);
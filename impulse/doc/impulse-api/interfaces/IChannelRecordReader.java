@@ -0,0 +1,94 @@
+package de.toem.impulse.serializer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+import de.toem.toolkits.pattern.threading.IProgress;
+import de.toem.toolkits.utils.serializer.ParseException;
+
+/**
+ * Interface for record readers that can parse directly from a byte channel.
+ *
+ * The regular entry point parse(IProgress, InputStream) consumes a plain stream; readers usually wrap it
+ * in buffered readers and copy the bytes several times. Readers implementing this interface additionally
+ * accept a SeekableByteChannel, which allows them to memory-map the file, seek, and decode directly
+ * from ByteBuffers. Plain streams stay supported for sockets and pipes.
+ *
+ * Readers announce the capability with ISupports.Static.SUPPORT_CHANNEL in their supports method. If the
+ * input of a stream based call is a file, the reader can switch to the channel itself:
+ *
+ * <pre>
+ * protected void parse(IProgress progress, InputStream in) throws ParseException {
+ *     SeekableByteChannel channel = IChannelRecordReader.channel(in);
+ *     if (channel != null)
+ *         parse(progress, channel);
+ *     else
+ *         ... // stream based parsing
+ * }
+ * </pre>
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 91
+ */
+public interface IChannelRecordReader extends IParsingRecordReader {
+
+    /** Default size of mapped windows */
+    public static final int DEFAULT_WINDOW = 64 << 20;
+
+    // ========================================================================================================================
+    // Parse
+    // ========================================================================================================================
+
+    /**
+     * Parses the input channel, starting at its current position.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation
+     * @param channel The channel containing the data to be read (not closed by the reader)
+     * @throws ParseException If an error occurs during parsing
+     */
+    void parse(IProgress progress, SeekableByteChannel channel) throws ParseException;
+
+    // ========================================================================================================================
+    // Helpers
+    // ========================================================================================================================
+
+    /**
+     * Returns the channel of the given stream, if the stream is a file stream.
+     * The position of the returned channel is the current position of the stream.
+     *
+     * @param in The input stream.
+     * @return The channel, or null if the stream is not backed by a file.
+     */
+    static SeekableByteChannel channel(InputStream in) {
+        if (in instanceof FileInputStream)
+            return ((FileInputStream) in).getChannel();
+        return null;
+    }
+
+    /**
+     * Returns a read-only buffer for a region of the channel. File channels are memory-mapped
+     * (no copy); other channels are read into a heap buffer.
+     *
+     * @param channel The channel.
+     * @param position The start position of the region.
+     * @param size The maximum size of the region (limited by the channel size).
+     * @return The buffer, positioned at 0 with limit = region size.
+     * @throws IOException If the channel cannot be read.
+     */
+    static ByteBuffer map(SeekableByteChannel channel, long position, int size) throws IOException {
+        int length = (int) Math.max(0, Math.min(size, channel.size() - position));
+        if (channel instanceof FileChannel)
+            return ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, position, length);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+            ;
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,80 @@
+package de.toem.impulse.samples;
+
+/**
+ * Interface for resolved member references in the impulse framework.
+ *
+ * A member handle is the result of resolving a member identifier (name, path, id or index) against
+ * the member descriptors of a signal. It is obtained once from {@link IReadableSamples#getMemberHandle(Object)}
+ * and then passed to the typed accessors of {@link IReadableMembers} for every sample, so the identifier
+ * is not matched against the member descriptors again.
+ *
+ * Key features of this interface include:
+ * - Resolve-once access to struct and array members
+ * - The resolved member descriptor is passed to the member accessors as identifier
+ * - Access to the resolved member descriptor
+ *
+ * Member ids are stable within a signal, so a handle stays valid while new members are added to the legend
+ * (e.g. during live reading). A handle must only be used with samples of the signal it was obtained from.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 77
+ */
+public interface IMemberHandle {
+
+    /**
+     * Returns the resolved member descriptor.
+     * @return The member descriptor, never null.
+     */
+    IMemberDescriptor getDescriptor();
+
+    /**
+     * Returns the resolved identifier to be passed to the member accessors.
+     * This is the member descriptor itself: the accessors take it as is and match members by their id. Unlike an
+     * Integer identifier, it is never taken as an index into the member descriptors, so nested members whose id
+     * differs from their list position are read correctly.
+     * @return The resolved member identifier (the member descriptor).
+     */
+    Object getIdentifier();
+
+    /**
+     * Returns the numeric id of the member.
+     */
+    default int getNId() {
+        return getDescriptor().getNId();
+    }
+
+    /**
+     * Returns the full path of the member (e.g. "header.len").
+     */
+    default String getPath() {
+        return getDescriptor().getPath();
+    }
+
+    /**
+     * Creates a handle for the given member descriptor.
+     * @param descriptor The resolved member descriptor.
+     * @return The member handle, or null if descriptor is null.
+     */
+    static IMemberHandle of(IMemberDescriptor descriptor) {
+        if (descriptor == null)
+            return null;
+        return new IMemberHandle() {
+
+            @Override
+            public IMemberDescriptor getDescriptor() {
+                return descriptor;
+            }
+
+            @Override
+            public Object getIdentifier() {
+                return descriptor;
+            }
+
+            @Override
+            public String toString() {
+                return descriptor.getPath();
+            }
+        };
+    }
+}
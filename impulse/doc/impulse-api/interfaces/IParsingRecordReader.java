@@ -34,10 +34,10 @@ public interface IParsingRecordReader extends IRecordReader  {
     /** Include the 'empty' property to control handling of empty values */
     public static final int PROP_EMPTY = 1<<0;
     
-    /** Include properties for inclusion/exclusion patterns */
+    /** Include properties for inclusion/exclusion patterns (evaluated by ImportFilter) */
     public static final int PROP_INCLUDE = 1<<1;
     
-    /** Include properties for range specification (start/end) */
+    /** Include properties for range specification (start/end, evaluated by ImportFilter) */
     public static final int PROP_RANGE = 1<<2;
     
     /** Include properties for transformations (delay/scale) */
@@ -100,6 +100,9 @@ public interface IParsingRecordReader extends IRecordReader  {
      * during the parsing process, providing both the type of change and the current
      * position within the record.
      * 
+     * Each call may notify UI listeners. Readers with high sample rates should not call
+     * it per sample, but collect changes with a ChangeAccumulator and drain it at flush time.
+     * 
      * @param changed Change information (IRecordReader.CHANGED_*)
      * @param units Current end position as a multiple of its domain base 
      *              (e.g. domain base=1ms; units = 100; -> domain value = 100ms)
@@ -0,0 +1,67 @@
+package de.toem.impulse.serializer;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+
+import de.toem.impulse.samples.ISamplesWriter;
+import de.toem.toolkits.pattern.threading.IProgress;
+import de.toem.toolkits.utils.serializer.ParseException;
+
+/**
+ * Interface for record readers that can parse chunks of a file concurrently.
+ *
+ * Formats with a seekable structure (e.g. chunked binary formats, traces with independent value change
+ * sections) can be split at safe resync points. Each chunk is parsed on its own thread into per-chunk
+ * writers; the ParallelParser stitches the chunks in position order into the final signals.
+ *
+ * A reader announces the capability with ISupports.Static.SUPPORT_RANDOM_ACCESS. Its channel parser
+ * reads the header (creating the record and the signals), then hands the remaining file to a ParallelParser:
+ *
+ * <pre>
+ * public void parse(IProgress progress, SeekableByteChannel channel) throws ParseException {
+ *     long body = parseHeader(channel); // creates record and signals
+ *     open(0);
+ *     new ParallelParser(this, writers).parse(progress, channel, body, channel.size(), scheduler);
+ *     close(end);
+ * }
+ * </pre>
+ *
+ * Requirements for the chunk parsers:
+ * - chunks must be independent: a chunk must not depend on state of a previous chunk (e.g. current values)
+ * - positions within a chunk must be absolute and chunks must be in ascending position order in the file
+ * - parseChunk is called concurrently and must not modify shared reader state
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 93
+ */
+public interface IRandomAccessRecordReader extends IChannelRecordReader {
+
+    /**
+     * Returns the next safe chunk start at or after the given offset.
+     *
+     * @param channel The input channel.
+     * @param offset The nominal split offset.
+     * @return The offset of the next resync point (e.g. start of a section), or channel.size() if there is none.
+     * @throws IOException If the channel cannot be read.
+     */
+    long resync(SeekableByteChannel channel, long offset) throws IOException;
+
+    /**
+     * Creates and opens a standalone writer for one chunk of the given signal.
+     * The writer must be of the same type as the signal writer (see ParallelParser.newWriter).
+     *
+     * @param signal The signal index (index into the target writers of the ParallelParser).
+     * @return The opened writer.
+     */
+    ISamplesWriter createChunkWriter(int signal);
+
+    /**
+     * Parses one chunk. Called concurrently for different chunks.
+     *
+     * @param progress Interface for checking for cancellation
+     * @param chunk The chunk to be parsed, providing the data and the chunk writers.
+     * @throws ParseException If an error occurs during parsing
+     */
+    void parseChunk(IProgress progress, ParallelParser.Chunk chunk) throws ParseException;
+}
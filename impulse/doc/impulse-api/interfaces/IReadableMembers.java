@@ -6,6 +6,7 @@ import java.util.List;
 
 import de.toem.impulse.samples.raw.Enumeration;
 import de.toem.impulse.samples.raw.Logic;
+import de.toem.impulse.samples.raw.LogicFormat;
 import de.toem.impulse.samples.raw.Struct;
 
 /**
@@ -454,7 +455,148 @@ public interface IReadableMembers extends ISample, IMemberAccess {
      * @return struct value of the member, or null if the member cannot be interpreted as a struct
      */
     Struct structValueOf(Object memberIdentifier);
-    
 
+    // ========================================================================================================================
+    // Member Handles
+    // ========================================================================================================================
+
+    /**
+     * Handle variants of the format and conversion methods above.
+     * 
+     * The handle is obtained once with IReadableSamples.getMemberHandle(memberIdentifier) and passes its resolved
+     * member descriptor, so the member is not searched by name or path with every call, and the identifier is never
+     * mistaken for an index into the member descriptors.
+     * 
+     * @param handle Member handle obtained from IReadableSamples.getMemberHandle
+     * @see IMemberHandle
+     */
+    default String formatOf(IMemberHandle handle, String format) {
+        return formatOf(handle.getDescriptor(), format);
+    }
+
+    default String defaultFormatOf(IMemberHandle handle, String parentFormat) {
+        return defaultFormatOf(handle.getDescriptor(), parentFormat);
+    }
+
+    default String fhexOf(IMemberHandle handle) {
+        return fhexOf(handle.getDescriptor());
+    }
+
+    default String fdecOf(IMemberHandle handle) {
+        return fdecOf(handle.getDescriptor());
+    }
+
+    default String foctOf(IMemberHandle handle) {
+        return foctOf(handle.getDescriptor());
+    }
+
+    default String fbinOf(IMemberHandle handle) {
+        return fbinOf(handle.getDescriptor());
+    }
+
+    /**
+     * Writes the hexadecimal digits of the given logic member into the given character buffer, converted directly
+     * from the logic states with LogicFormat.hex (no prefix, no intermediate objects).
+     *
+     * @return the number of characters written, the negated number of required characters if the buffer is too small,
+     *         or 0 if the member has no logic value
+     * @see IReadableSamples#hexDigitsInto(int, boolean, char[], int)
+     */
+    default int hexDigitsInto(IMemberHandle handle, boolean lowercase, char[] buffer, int offset) {
+        Logic value = logicValueOf(handle.getDescriptor());
+        if (value == null)
+            return 0;
+        byte[] states = value.getStates();
+        int length = LogicFormat.hexLength(states.length);
+        if (offset + length > buffer.length)
+            return -length;
+        return LogicFormat.hex(states, 0, states.length, lowercase, buffer, offset);
+    }
+
+    /**
+     * Writes the binary digits of the given logic member into the given character buffer, one character per state,
+     * converted directly from the logic states with LogicFormat.bin.
+     *
+     * @return the number of characters written, the negated number of required characters if the buffer is too small,
+     *         or 0 if the member has no logic value
+     * @see IReadableSamples#binDigitsInto(int, boolean, char[], int)
+     */
+    default int binDigitsInto(IMemberHandle handle, boolean lowercase, char[] buffer, int offset) {
+        Logic value = logicValueOf(handle.getDescriptor());
+        if (value == null)
+            return 0;
+        byte[] states = value.getStates();
+        if (offset + states.length > buffer.length)
+            return -states.length;
+        return LogicFormat.bin(states, 0, states.length, lowercase, buffer, offset);
+    }
+
+    default String fasciiOf(IMemberHandle handle) {
+        return fasciiOf(handle.getDescriptor());
+    }
+
+    default Logic logicValueOf(IMemberHandle handle) {
+        return logicValueOf(handle.getDescriptor());
+    }
+
+    default int logicStateOf(IMemberHandle handle) {
+        return logicStateOf(handle.getDescriptor());
+    }
+
+    default boolean isHighOf(IMemberHandle handle, ILogicDetector detector) {
+        return isHighOf(handle.getDescriptor(), detector);
+    }
+
+    default boolean isLowOf(IMemberHandle handle, ILogicDetector detector) {
+        return isLowOf(handle.getDescriptor(), detector);
+    }
+
+    default boolean booleanValueOf(IMemberHandle handle) {
+        return booleanValueOf(handle.getDescriptor());
+    }
+
+    default Number numberValueOf(IMemberHandle handle) {
+        return numberValueOf(handle.getDescriptor());
+    }
+
+    default float floatValueOf(IMemberHandle handle) {
+        return floatValueOf(handle.getDescriptor());
+    }
+
+    default double doubleValueOf(IMemberHandle handle) {
+        return doubleValueOf(handle.getDescriptor());
+    }
+
+    default BigDecimal bigDecimalValueOf(IMemberHandle handle) {
+        return bigDecimalValueOf(handle.getDescriptor());
+    }
+
+    default long longValueOf(IMemberHandle handle) {
+        return longValueOf(handle.getDescriptor());
+    }
+
+    default int intValueOf(IMemberHandle handle) {
+        return intValueOf(handle.getDescriptor());
+    }
+
+    default BigInteger bigIntValueOf(IMemberHandle handle) {
+        return bigIntValueOf(handle.getDescriptor());
+    }
+
+    default String stringValueOf(IMemberHandle handle) {
+        return stringValueOf(handle.getDescriptor());
+    }
+
+    default Enumeration enumValueOf(IMemberHandle handle) {
+        return enumValueOf(handle.getDescriptor());
+    }
+
+    default byte[] bytesValueOf(IMemberHandle handle) {
+        return bytesValueOf(handle.getDescriptor());
+    }
+
+    default Struct structValueOf(IMemberHandle handle) {
+        return structValueOf(handle.getDescriptor());
+    }
 
 }
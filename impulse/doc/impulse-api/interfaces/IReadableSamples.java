@@ -9,7 +9,9 @@ import de.toem.impulse.samples.base.SamplesStat;
 import de.toem.impulse.samples.domain.DomainLongValue;
 import de.toem.impulse.samples.domain.DomainValue;
 import de.toem.impulse.samples.raw.Enumeration;
+import de.toem.impulse.samples.raw.EnumerationTable;
 import de.toem.impulse.samples.raw.Logic;
+import de.toem.impulse.samples.raw.LogicFormat;
 import de.toem.impulse.samples.raw.Struct;
 
 /**
@@ -692,6 +694,89 @@ public interface IReadableSamples extends ISamples {
      */
     String defaultFormatAt(int idx);
 
+    /**
+     * Appends the formatted sample at the given index to the given builder.
+     * 
+     * This method is equivalent to formatAt(idx, format), but appends the result to a reusable
+     * builder. Implementations may override it to append the characters directly, without creating
+     * an intermediate string (e.g. for wide logic vectors).
+     *
+     * @param idx the sample index (0..getCount()-1)
+     * @param format format specifier string as defined in ISample (e.g., "hex", "dec")
+     * @param out the builder to append to
+     * @return the given builder
+     * @see FormattedValueCache for caching formatted values of repainted views
+     */
+    default StringBuilder formatInto(int idx, String format, StringBuilder out) {
+        return out.append(formatAt(idx, format));
+    }
+
+    /**
+     * Writes the formatted sample at the given index into the given character buffer.
+     * 
+     * @param idx the sample index (0..getCount()-1)
+     * @param format format specifier string as defined in ISample (e.g., "hex", "dec")
+     * @param buffer the buffer to write into
+     * @param offset the start offset in the buffer
+     * @return the number of characters written, or the negated number of required characters if the buffer is too small
+     */
+    default int formatInto(int idx, String format, char[] buffer, int offset) {
+        String formatted = formatAt(idx, format);
+        int length = formatted.length();
+        if (offset + length > buffer.length)
+            return -length;
+        formatted.getChars(0, length, buffer, offset);
+        return length;
+    }
+
+    /**
+     * Writes the hexadecimal digits of the logic sample at the given index into the given character buffer.
+     * 
+     * Unlike fhexAt, the digits are converted directly from the logic states with LogicFormat.hex, without
+     * prefix and without intermediate BigInteger or string objects. Use it for wide logic vectors that are
+     * formatted many times (e.g. exporters). Partially known digits are written as '#' (see LogicFormat).
+     *
+     * @param idx the sample index (0..getCount()-1)
+     * @param lowercase if true, writes a..f (and x, z) in lowercase
+     * @param buffer the buffer to write into
+     * @param offset the start offset in the buffer
+     * @return the number of characters written, the negated number of required characters if the buffer is too small,
+     *         or 0 if the sample has no logic value
+     */
+    default int hexDigitsInto(int idx, boolean lowercase, char[] buffer, int offset) {
+        Logic value = logicValueAt(idx);
+        if (value == null)
+            return 0;
+        byte[] states = value.getStates();
+        int length = LogicFormat.hexLength(states.length);
+        if (offset + length > buffer.length)
+            return -length;
+        return LogicFormat.hex(states, 0, states.length, lowercase, buffer, offset);
+    }
+
+    /**
+     * Writes the binary digits of the logic sample at the given index into the given character buffer.
+     * 
+     * Unlike fbinAt, the digits are converted directly from the logic states with LogicFormat.bin, one character
+     * per state (including L, H, U, W and -), without prefix and without intermediate objects.
+     *
+     * @param idx the sample index (0..getCount()-1)
+     * @param lowercase if true, writes non 0/1 states in lowercase
+     * @param buffer the buffer to write into
+     * @param offset the start offset in the buffer
+     * @return the number of characters written, the negated number of required characters if the buffer is too small,
+     *         or 0 if the sample has no logic value
+     */
+    default int binDigitsInto(int idx, boolean lowercase, char[] buffer, int offset) {
+        Logic value = logicValueAt(idx);
+        if (value == null)
+            return 0;
+        byte[] states = value.getStates();
+        if (offset + states.length > buffer.length)
+            return -states.length;
+        return LogicFormat.bin(states, 0, states.length, lowercase, buffer, offset);
+    }
+
     /**
      * Formats the sample at the given index using hexadecimal format.
      * 
@@ -1005,6 +1090,23 @@ public interface IReadableSamples extends ISamples {
 
     List<Enumeration> getEnums(int enumerationType);
 
+    /**
+     * Returns a lookup table for all enumerations of the given type.
+     * 
+     * The table maps values to enumerations and labels to enumerations in constant time, which is
+     * recommended for signals with many enumeration values (e.g. state machines) when formatting or
+     * searching many samples. The default implementation shares one table per legend and enumeration
+     * type (see EnumerationTable.cached) and builds a new one only when the samples or the legend change,
+     * so repeated calls are cheap. The returned table must not be modified.
+     *
+     * @param enumerationType enumeration type as defined in ISample (ENUM_*)
+     * @return lookup table for the specified type, never null
+     * @see EnumerationTable
+     */
+    default EnumerationTable getEnumTable(int enumerationType) {
+        return EnumerationTable.cached(getLegend(), getRelease(), false, enumerationType, () -> getEnums(enumerationType));
+    }
+
     /**
      * Returns the member descriptor for the specified member identifier.
      * 
@@ -1028,6 +1130,22 @@ public interface IReadableSamples extends ISamples {
      */
     IMemberDescriptor getMemberDescriptor(Object memberIdentifier);
 
+    /**
+     * Resolves the specified member identifier once and returns a handle for it.
+     *
+     * The handle can be passed to the typed accessors of IReadableMembers (e.g. doubleValueOf(IMemberHandle))
+     * for every sample of this signal, avoiding the repeated matching of names and paths against the
+     * member descriptors. This is recommended when the same member is accessed for many samples,
+     * e.g. in expressions referencing struct members like 's0.header.len'.
+     *
+     * @param memberIdentifier member identifier (String name/path, Integer ID/index)
+     * @return handle for the resolved member, or null if not found
+     * @see IMemberHandle
+     */
+    default IMemberHandle getMemberHandle(Object memberIdentifier) {
+        return IMemberHandle.of(getMemberDescriptor(memberIdentifier));
+    }
+
     /**
      * Returns all enumerations for the specified member.
      * 
@@ -1043,6 +1161,23 @@ public interface IReadableSamples extends ISamples {
      */
     List<Enumeration> getMemberEnums(Object memberIdentifier);
 
+    /**
+     * Returns a lookup table for all enumerations of the specified member.
+     * 
+     * See getEnumTable(int) for the lookup characteristics and sharing of the returned table.
+     * Tables are shared per member id; unknown members get an empty, unshared table.
+     *
+     * @param memberIdentifier member identifier (String name, Integer id, or index)
+     * @return lookup table for the specified member, never null
+     * @see EnumerationTable
+     */
+    default EnumerationTable getMemberEnumTable(Object memberIdentifier) {
+        IMemberDescriptor descriptor = getMemberDescriptor(memberIdentifier);
+        if (descriptor == null)
+            return EnumerationTable.of(-1, getMemberEnums(memberIdentifier));
+        return EnumerationTable.cached(getLegend(), getRelease(), true, descriptor.getNId(), () -> getMemberEnums(descriptor));
+    }
+
     /**
      * Returns the enumeration for the specified member and label.
      * 
@@ -93,7 +93,81 @@ public interface IStructSamplesWriter extends ISamplesWriter{
      * @return The newly created StructMember object, which is also stored in the array at the specified index.
      */
     StructMember createMember(StructMember[] members, int idx, String name,String description,String iconId, String tags, int type, int scale, String format);
-    
+
+    // ========================================================================================================================
+    // Reuse
+    // ========================================================================================================================
+
+    /**
+     * Returns true if this writer copies all member values into its packed samples when write is called.
+     * In this case the member array passed to write is not referenced after the call returns, and callers may
+     * allocate the array once (using createMembers/createMember) and refill it for every sample. This avoids
+     * allocating new member arrays per sample when decoding high rate packet streams.
+     * The default is false; writers that guarantee the copy override this method. Callers that get false need to
+     * create a new member array for each sample.
+     * @return True if member arrays may be reused after write, false otherwise.
+     */
+    default boolean copiesMembers() {
+        return false;
+    }
+
+    /**
+     * Invalidates all members of a reused member array.
+     * Invalid members are not written with the next sample, so optional fields of a previous sample do not leak into the next one.
+     * @param members The reused array of struct members.
+     */
+    default void resetMembers(StructMember[] members) {
+        for (StructMember member : members)
+            if (member != null)
+                member.setValid(false);
+    }
+
+    /**
+     * Sets an integer value of a member and marks it valid. Members hold their value as an object, so a changed value
+     * is still boxed (one Long per change) and the member repacked. Only a value equal to the current value of the
+     * member is written without allocation.
+     * @param members The array of struct members.
+     * @param idx Zero-based index of the member in the array.
+     * @param value The new value.
+     */
+    default void setLong(StructMember[] members, int idx, long value) {
+        StructMember member = members[idx];
+        Object current = member.getValue();
+        if (!(current instanceof Long) || (Long) current != value)
+            member.setLongValue(value);
+        member.setValid(true);
+    }
+
+    /**
+     * Sets a float value of a member and marks it valid. A changed value is still boxed (one Double per change) and
+     * the member repacked; a value equal to the current value of the member is written without allocation.
+     * @param members The array of struct members.
+     * @param idx Zero-based index of the member in the array.
+     * @param value The new value.
+     */
+    default void setDouble(StructMember[] members, int idx, double value) {
+        StructMember member = members[idx];
+        Object current = member.getValue();
+        if (!(current instanceof Double) || Double.doubleToLongBits((Double) current) != Double.doubleToLongBits(value))
+            member.setDoubleValue(value);
+        member.setValid(true);
+    }
+
+    /**
+     * Sets the enumeration value of an enum member and marks it valid. The value needs to be defined with the member
+     * (see StructMember.setEnum). A changed value is still boxed (one Integer per change, outside the Integer cache);
+     * a value equal to the current value of the member is written without allocation.
+     * @param members The array of struct members.
+     * @param idx Zero-based index of the member in the array.
+     * @param value The enumeration value.
+     */
+    default void setEnum(StructMember[] members, int idx, int value) {
+        StructMember member = members[idx];
+        Object current = member.getValue();
+        if (!(current instanceof Integer) || (Integer) current != value)
+            member.setIntValue(value);
+        member.setValid(true);
+    }
 
     /**
      * Gets the next available layer number for rendering.
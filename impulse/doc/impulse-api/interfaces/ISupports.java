@@ -39,6 +39,12 @@ public interface ISupports {
         /** Indicates support for native build processes */
         public final static int SUPPORT_NATIVE_BUILD = 0x10000;
         
+        /** Indicates support for direct channel input (see IChannelRecordReader) */
+        public final static int SUPPORT_CHANNEL = 0x20000;
+        
+        /** Indicates support for concurrent parsing of file chunks (see IRandomAccessRecordReader) */
+        public final static int SUPPORT_RANDOM_ACCESS = 0x40000;
+        
     }
     
     /**
@@ -0,0 +1,263 @@
+package de.toem.impulse.serializer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import de.toem.impulse.samples.domain.DomainValue;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+
+/**
+ * Import filter evaluating the standard include/exclude and start/end properties of a reader.
+ *
+ * Readers with PROP_INCLUDE and PROP_RANGE in their property model create the filter from their properties and
+ * consult it before creating signals and before decoding samples, so filtered signals and samples cost no memory
+ * and (where the format allows skipping) no parsing:
+ * - accepts(path) is checked before addSignal; rejected signals get no writer
+ * - isExcluded(path) allows skipping complete scopes
+ * - from(base) and to(base) define the domain window [from, to) in multiples of a domain base
+ *
+ * Include and exclude hold lists of patterns separated by ',', ';' or line breaks. Patterns are matched against
+ * the path of a signal, with '/' separating scopes and the signal name (a leading '/' is optional):
+ * - glob patterns: '*' matches within a name, '**' across scopes, '?' matches one character
+ * - regular expressions: patterns enclosed in '{' and '}', matched against the complete path
+ *
+ * A pattern matching a scope applies to all signals below this scope. Without include patterns all signals are
+ * included; exclude patterns take precedence.
+ *
+ * <pre>
+ * ImportFilter filter = ImportFilter.create(getProperties());
+ * ...
+ * if (filter.accepts(scopePath, name))
+ *     addSignal(scope, name, ...);
+ * ...
+ * long to = filter.to(domainBase);
+ * ...
+ * if (position &gt;= to)
+ *     break;
+ * </pre>
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 109
+ */
+public class ImportFilter {
+
+    /** Filter accepting all signals and samples */
+    public static final ImportFilter ALL = new ImportFilter(null, null, null, null);
+
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+    private final DomainValue start;
+    private final DomainValue end;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates an import filter.
+     *
+     * @param include Include patterns (null or empty to include all signals).
+     * @param exclude Exclude patterns (null or empty to exclude no signal).
+     * @param start Start of the domain window (e.g. "10ms"; null or empty for no lower limit).
+     * @param end End of the domain window, exclusive (e.g. "12ms"; null or empty for no upper limit).
+     * @throws IllegalArgumentException If a pattern or domain value cannot be parsed.
+     */
+    public ImportFilter(String include, String exclude, String start, String end) {
+        this.includes = compile(include);
+        this.excludes = compile(exclude);
+        this.start = parse(start);
+        this.end = parse(end);
+    }
+
+    /**
+     * Creates the import filter from the properties of a reader ("include", "exclude", "start" and "end").
+     * Properties not contained in the model are ignored.
+     *
+     * @param properties The reader properties.
+     * @return The import filter.
+     * @throws IllegalArgumentException If a pattern or domain value cannot be parsed.
+     */
+    public static ImportFilter create(IPropertyModel properties) {
+        if (properties == null)
+            return ALL;
+        ImportFilter filter = new ImportFilter(properties.getVal("include"), properties.getVal("exclude"), properties.getVal("start"),
+                properties.getVal("end"));
+        return filter.isEmpty() ? ALL : filter;
+    }
+
+    // ========================================================================================================================
+    // Signals
+    // ========================================================================================================================
+
+    /**
+     * Returns true if this filter accepts all signals and samples.
+     */
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty() && start == null && end == null;
+    }
+
+    /**
+     * Returns true if the signal with the given path shall be imported.
+     *
+     * @param path The names of the scopes and the signal.
+     * @return true if the signal is included and not excluded.
+     */
+    public boolean accepts(String... path) {
+        if (includes.isEmpty() && excludes.isEmpty())
+            return true;
+        return (includes.isEmpty() || matches(includes, path)) && !matches(excludes, path);
+    }
+
+    /**
+     * Returns true if the signal in the given scope shall be imported.
+     *
+     * @param scope The names of the scopes.
+     * @param name The name of the signal.
+     * @return true if the signal is included and not excluded.
+     */
+    public boolean accepts(List<String> scope, String name) {
+        if (includes.isEmpty() && excludes.isEmpty())
+            return true;
+        String[] path = scope.toArray(new String[scope.size() + 1]);
+        path[scope.size()] = name;
+        return accepts(path);
+    }
+
+    /**
+     * Returns true if the scope with the given path and everything below is excluded, so the scope can be skipped.
+     *
+     * @param path The names of the scopes.
+     * @return true if the scope is excluded.
+     */
+    public boolean isExcluded(String... path) {
+        return !excludes.isEmpty() && matches(excludes, path);
+    }
+
+    // ========================================================================================================================
+    // Domain Window
+    // ========================================================================================================================
+
+    /**
+     * Returns true if this filter limits the domain range.
+     */
+    public boolean hasWindow() {
+        return start != null || end != null;
+    }
+
+    /**
+     * Returns the start of the domain window in multiples of the given domain base. Values of incompatible domains
+     * (e.g. a frequency window for a time record) are ignored.
+     *
+     * @param base The domain base of the record or signal.
+     * @return The start of the window (Long.MIN_VALUE if not limited).
+     */
+    public long from(IDomainBase base) {
+        return convert(start, base, Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns the end of the domain window (exclusive) in multiples of the given domain base. Values of
+     * incompatible domains are ignored.
+     *
+     * @param base The domain base of the record or signal.
+     * @return The end of the window (Long.MAX_VALUE if not limited).
+     */
+    public long to(IDomainBase base) {
+        return convert(end, base, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns true if the given position is inside the domain window [from, to).
+     *
+     * @param base The domain base of the position.
+     * @param units The position in multiples of the domain base.
+     * @return true if the position is inside the window.
+     */
+    public boolean contains(IDomainBase base, long units) {
+        return units >= from(base) && units < to(base);
+    }
+
+    // ========================================================================================================================
+    // Utils
+    // ========================================================================================================================
+
+    private static boolean matches(List<Pattern> patterns, String[] path) {
+        StringBuilder joined = new StringBuilder();
+        for (int n = 0; n < path.length; n++) {
+            if (path[n] == null)
+                continue;
+            if (joined.length() > 0)
+                joined.append('/');
+            joined.append(path[n]);
+            // a pattern matching a scope applies to everything below
+            for (Pattern pattern : patterns)
+                if (pattern.matcher(joined).matches())
+                    return true;
+        }
+        return false;
+    }
+
+    private static List<Pattern> compile(String patterns) {
+        List<Pattern> compiled = new ArrayList<>();
+        if (patterns == null)
+            return compiled;
+        for (String pattern : patterns.split("[,;\\r\\n]")) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty())
+                continue;
+            try {
+                if (pattern.length() > 1 && pattern.startsWith("{") && pattern.endsWith("}"))
+                    compiled.add(Pattern.compile(pattern.substring(1, pattern.length() - 1)));
+                else
+                    compiled.add(Pattern.compile(glob(pattern.startsWith("/") ? pattern.substring(1) : pattern)));
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid filter pattern: " + pattern, e);
+            }
+        }
+        return compiled;
+    }
+
+    private static String glob(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 16);
+        for (int n = 0; n < glob.length(); n++) {
+            char c = glob.charAt(n);
+            if (c == '*' && n + 1 < glob.length() && glob.charAt(n + 1) == '*') {
+                regex.append(".*");
+                n++;
+            } else if (c == '*')
+                regex.append("[^/]*");
+            else if (c == '?')
+                regex.append("[^/]");
+            else if ("\\.[]{}()<>+-=!^$|".indexOf(c) >= 0)
+                regex.append('\\').append(c);
+            else
+                regex.append(c);
+        }
+        return regex.toString();
+    }
+
+    private static DomainValue parse(String value) {
+        if (value == null || value.trim().isEmpty())
+            return null;
+        DomainValue parsed = DomainValue.parse(value.trim());
+        if (parsed == null)
+            throw new IllegalArgumentException("Invalid domain value: " + value);
+        return parsed;
+    }
+
+    private static long convert(DomainValue value, IDomainBase base, long def) {
+        if (value == null || base == null)
+            return def;
+        Number multiple = value.convertMultipleTo(base, IDomainBase.CONVERT_ANY);
+        if (multiple == null)
+            return def;
+        // positions are integral, so both the inclusive start and the exclusive end round up
+        return new BigDecimal(multiple.toString()).setScale(0, RoundingMode.CEILING).longValue();
+    }
+}
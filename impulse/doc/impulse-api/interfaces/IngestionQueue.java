@@ -0,0 +1,354 @@
+package de.toem.impulse.samples.adaptors;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import de.toem.toolkits.pattern.element.producer.ICellProducer.ITelemetry;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.properties.PropertyModel;
+import de.toem.toolkits.pattern.threading.IProgress;
+
+/**
+ * Bounded ingestion queue between live sources and the samples writers.
+ *
+ * Live sources (logic analysers, device links) may burst faster than the writers and the flush can absorb. The
+ * queue decouples the source threads from the writing thread and bounds the memory held in between. When the queue
+ * is full, the policy decides:
+ * - POLICY_BLOCK: the source blocks until there is room (back-pressure, e.g. into the TCP window of a socket)
+ * - POLICY_DROP_OLDEST: the oldest entry is dropped (keeps the latest data)
+ * - POLICY_DROP_NEWEST: the new entry is dropped (keeps the data of the burst start)
+ * - POLICY_DECIMATE: every second queued entry is dropped (thins out the burst instead of cutting it; older entries
+ *   get thinned repeatedly)
+ *
+ * <pre>
+ * IngestionQueue&lt;Frame&gt; queue = IngestionQueue.create(getProperties());
+ * // source threads
+ * queue.offer(frame);
+ * // writing thread
+ * while (queue.await(100) || !queue.isClosed())
+ *     queue.drain(frame -&gt; write(frame), 1024);
+ * </pre>
+ *
+ * Dropped entries are lost, so dropping policies fit sources whose entries are self-contained (e.g. snapshots of all
+ * channels). With change-based sources prefer POLICY_BLOCK. The queue depth and the dropped entries are reported to
+ * the progress of the producer with report (see ITelemetry.queue).
+ *
+ * The queue is thread-safe; any number of threads may offer and drain. It waits on a ReentrantLock rather than a
+ * monitor, so blocked sources on virtual threads do not pin their carrier threads.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 119
+ */
+public class IngestionQueue<T> {
+
+    /** Block the source while the queue is full */
+    public static final int POLICY_BLOCK = 0;
+
+    /** Drop the oldest entry when the queue is full */
+    public static final int POLICY_DROP_OLDEST = 1;
+
+    /** Drop the new entry when the queue is full */
+    public static final int POLICY_DROP_NEWEST = 2;
+
+    /** Drop every second queued entry when the queue is full */
+    public static final int POLICY_DECIMATE = 3;
+
+    public static final String[] POLICY_LABELS = { "Block Source", "Drop Oldest", "Drop Newest", "Decimate" };
+    public static final Integer[] POLICY_OPTIONS = { POLICY_BLOCK, POLICY_DROP_OLDEST, POLICY_DROP_NEWEST, POLICY_DECIMATE };
+
+    /** Default capacity in entries */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Object[] entries;
+    private final int policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;
+    private int size;
+    private boolean closed;
+
+    private int peak;
+    private long offered;
+    private long dropped;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a queue.
+     *
+     * @param capacity The maximum number of queued entries.
+     * @param policy The policy applied when the queue is full (POLICY_*).
+     */
+    public IngestionQueue(int capacity, int policy) {
+        this.entries = new Object[Math.max(2, capacity)];
+        this.policy = policy >= POLICY_BLOCK && policy <= POLICY_DECIMATE ? policy : POLICY_BLOCK;
+    }
+
+    /**
+     * Creates the queue from the properties of a producer ("queueCapacity" and "queuePolicy").
+     *
+     * @param properties The producer properties.
+     * @return The queue, or null if no capacity is set (the source writes directly).
+     */
+    public static <T> IngestionQueue<T> create(IPropertyModel properties) {
+        Integer capacity = properties != null ? properties.getTyped("queueCapacity", Integer.class) : null;
+        Integer policy = properties != null ? properties.getTyped("queuePolicy", Integer.class) : null;
+        if (capacity == null || capacity <= 0)
+            return null;
+        return new IngestionQueue<>(capacity, policy != null ? policy : POLICY_BLOCK);
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Returns the queue properties ("queueCapacity" and "queuePolicy") to be added to the property model of an
+     * adaptor.
+     *
+     * @return The property model.
+     */
+    public static PropertyModel getPropertyModel() {
+        return new PropertyModel()
+                .add("queueCapacity", DEFAULT_CAPACITY, null, null, null, "Queue Capacity", null,
+                        "Maximum number of entries queued between source and writers (0 to write directly)")
+                .add("queuePolicy", POLICY_BLOCK, POLICY_LABELS, POLICY_OPTIONS, null, "Queue Policy", null, "Handling of new entries when the queue is full");
+    }
+
+    // ========================================================================================================================
+    // Offer
+    // ========================================================================================================================
+
+    /**
+     * Adds an entry. If the queue is full, the policy is applied; with POLICY_BLOCK the call blocks until there is
+     * room or the queue is closed.
+     *
+     * @param entry The entry.
+     * @return true if the entry was queued, false if it was dropped or the queue is closed.
+     * @throws InterruptedException If interrupted while blocking.
+     */
+    public boolean offer(T entry) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            offered++;
+            if (size == entries.length && !closed) {
+                switch (policy) {
+                case POLICY_BLOCK:
+                    while (size == entries.length && !closed)
+                        notFull.await();
+                    break;
+                case POLICY_DROP_OLDEST:
+                    entries[head] = null;
+                    head = (head + 1) % entries.length;
+                    size--;
+                    dropped++;
+                    break;
+                case POLICY_DROP_NEWEST:
+                    dropped++;
+                    return false;
+                case POLICY_DECIMATE:
+                    decimate();
+                    break;
+                }
+            }
+            if (closed) {
+                dropped++;
+                return false;
+            }
+            entries[(head + size) % entries.length] = entry;
+            if (++size > peak)
+                peak = size;
+            if (size == 1)
+                notEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decimate() {
+        // keeps every second entry counted back from the newest, so the newest entry is kept
+        int kept = 0;
+        for (int n = (size - 1) & 1; n < size; n += 2)
+            entries[(head + kept++) % entries.length] = entries[(head + n) % entries.length];
+        for (int n = kept; n < size; n++)
+            entries[(head + n) % entries.length] = null;
+        dropped += size - kept;
+        size = kept;
+    }
+
+    // ========================================================================================================================
+    // Drain
+    // ========================================================================================================================
+
+    /**
+     * Waits until entries are queued or the queue is closed.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return true if entries are queued.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean await(long timeout) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (size == 0 && !closed && remaining > 0)
+                remaining = notEmpty.awaitNanos(remaining);
+            return size > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to max entries in order and passes them to the consumer. The consumer is called outside of the
+     * queue lock, so sources are not blocked while the entries are written.
+     *
+     * @param consumer The consumer of the entries.
+     * @param max The maximum number of entries.
+     * @return The number of drained entries.
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super T> consumer, int max) {
+        Object[] batch;
+        lock.lock();
+        try {
+            int count = Math.min(size, Math.max(1, max));
+            if (count == 0)
+                return 0;
+            batch = new Object[count];
+            for (int n = 0; n < count; n++) {
+                batch[n] = entries[head];
+                entries[head] = null;
+                head = (head + 1) % entries.length;
+            }
+            size -= count;
+            if (policy == POLICY_BLOCK)
+                notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Object entry : batch)
+            consumer.accept((T) entry);
+        return batch.length;
+    }
+
+    /**
+     * Closes the queue. Blocked sources are released and further entries are rejected; queued entries can still be
+     * drained.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true if the queue is closed.
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ========================================================================================================================
+    // Status
+    // ========================================================================================================================
+
+    /**
+     * Returns the policy (POLICY_*).
+     */
+    public int getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the maximum number of queued entries.
+     */
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the number of queued entries.
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the highest number of queued entries so far.
+     */
+    public int getPeak() {
+        lock.lock();
+        try {
+            return peak;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of offered entries.
+     */
+    public long getOffered() {
+        lock.lock();
+        try {
+            return offered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of dropped entries.
+     */
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports the queue depth and the dropped entries to the progress, if it supports telemetry.
+     *
+     * @param progress The progress of the producer (may be null).
+     */
+    public void report(IProgress progress) {
+        if (progress instanceof ITelemetry) {
+            int depth;
+            long dropped;
+            lock.lock();
+            try {
+                depth = size;
+                dropped = this.dropped;
+            } finally {
+                lock.unlock();
+            }
+            ((ITelemetry) progress).queue(depth, entries.length, dropped);
+        }
+    }
+}
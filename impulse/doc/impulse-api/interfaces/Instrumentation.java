@@ -0,0 +1,348 @@
+package de.toem.impulse.samples;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.element.ICover;
+import de.toem.toolkits.pattern.element.producer.ICellProducer;
+import de.toem.toolkits.pattern.element.serializer.ICellSerializer.ICellWriter;
+import de.toem.toolkits.pattern.threading.IProgress;
+
+/**
+ * Instrumentation of the samples hot paths: counters and JFR events.
+ *
+ * This class provides two complementary ways to see where time goes in parsing, packing, flushing,
+ * processing and rendering:
+ * - Counters: cumulative per-signal counts (samples written, bytes packed, fragments flushed, indexAt calls, cache
+ *   hits and misses), polled with snapshot().
+ * - JFR events: timed events around ICellProducer.run, ISamplesWriter.flush, ISamplesProcessor.produce and
+ *   ICellWriter.write, tagged with signal path and serializer id. They appear in the "impulse" category of
+ *   Java Flight Recorder recordings (e.g. -XX:StartFlightRecording or JDK Mission Control).
+ *
+ * Counters and events are only collected if the system property "impulse.instrumentation" is set to true when the
+ * class is loaded. ENABLED is a static final constant, so guarded code is removed by the JIT when disabled:
+ *
+ * <pre>
+ * if (Instrumentation.ENABLED)
+ *     counters.add(Instrumentation.SAMPLES_WRITTEN, 1);
+ * </pre>
+ *
+ * Events are started with begin and committed with commit:
+ *
+ * <pre>
+ * Instrumentation.IEvent event = Instrumentation.begin(Instrumentation.EVENT_FLUSH);
+ * writer.flush();
+ * event.commit(path, null);
+ * </pre>
+ *
+ * The static run, flush, produce, write and indexAt methods call the instrumented operation inside its event and
+ * update the related counters. FlushScheduler, ParallelParser, ParallelExport and AbstractConnectionRecordAdaptor
+ * use them, so readers and writers built on these helpers are instrumented without further code.
+ *
+ * The bundles run on Java 8, where JFR may be missing. The JFR event classes are therefore kept in a separate class
+ * (InstrumentationEvents) that is only loaded if the runtime provides jdk.jfr. Without JFR, begin returns a shared
+ * no-op event, as it does if instrumentation is disabled.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 85
+ */
+public final class Instrumentation {
+
+    /** True if counters are collected (system property "impulse.instrumentation") */
+    public static final boolean ENABLED = Boolean.getBoolean("impulse.instrumentation");
+
+    // ========================================================================================================================
+    // Counters
+    // ========================================================================================================================
+
+    /** Number of samples written */
+    public static final int SAMPLES_WRITTEN = 0;
+
+    /** Number of bytes packed into samples fragments */
+    public static final int BYTES_PACKED = 1;
+
+    /** Number of cache hits (e.g. FormattedValueCache) */
+    public static final int CACHE_HITS = 2;
+
+    /** Number of cache misses */
+    public static final int CACHE_MISSES = 3;
+
+    /** Number of flushes of samples writers (each flush completes a fragment) */
+    public static final int FRAGMENTS_FLUSHED = 4;
+
+    /** Number of indexAt calls */
+    public static final int INDEX_AT = 5;
+
+    /** Labels of the counters */
+    public static final String[] COUNTER_LABELS = { "samplesWritten", "bytesPacked", "cacheHits", "cacheMisses", "fragmentsFlushed", "indexAt" };
+
+    /** Path of counters not related to a single signal */
+    public static final String GLOBAL = "*";
+
+    private static final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Counters of one signal. Thread-safe; updates from several threads are cheap (LongAdder).
+     */
+    public static final class Counters {
+
+        private final String path;
+        private final LongAdder[] values = new LongAdder[COUNTER_LABELS.length];
+
+        Counters(String path) {
+            this.path = path;
+            for (int n = 0; n < values.length; n++)
+                values[n] = new LongAdder();
+        }
+
+        /**
+         * Returns the signal path of these counters.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Adds a delta to a counter.
+         *
+         * @param counter The counter (SAMPLES_WRITTEN, BYTES_PACKED, ...).
+         * @param delta The value to add.
+         */
+        public void add(int counter, long delta) {
+            values[counter].add(delta);
+        }
+
+        /**
+         * Increments a counter by one.
+         *
+         * @param counter The counter (SAMPLES_WRITTEN, BYTES_PACKED, ...).
+         */
+        public void increment(int counter) {
+            values[counter].increment();
+        }
+
+        /**
+         * Returns the current value of a counter.
+         */
+        public long get(int counter) {
+            return values[counter].sum();
+        }
+
+        /**
+         * Returns the current values of all counters (indexed by SAMPLES_WRITTEN, BYTES_PACKED, ...).
+         */
+        public long[] getAll() {
+            long[] result = new long[values.length];
+            for (int n = 0; n < values.length; n++)
+                result[n] = values[n].sum();
+            return result;
+        }
+
+        /**
+         * Resets all counters to zero.
+         */
+        public void reset() {
+            for (LongAdder value : values)
+                value.reset();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder(path).append(" {");
+            for (int n = 0; n < values.length; n++)
+                b.append(n > 0 ? ", " : "").append(COUNTER_LABELS[n]).append('=').append(values[n].sum());
+            return b.append('}').toString();
+        }
+    }
+
+    /**
+     * Returns the counters of a signal, creating them on first use.
+     * Callers on hot paths should look up the counters once (e.g. when opening a writer) and keep the reference.
+     *
+     * @param path The signal path, or null for the GLOBAL counters.
+     * @return The counters.
+     */
+    public static Counters counters(String path) {
+        return counters.computeIfAbsent(path != null ? path : GLOBAL, Counters::new);
+    }
+
+    /**
+     * Returns the current values of all counters, sorted by signal path.
+     *
+     * @return Signal path to counter values (indexed by SAMPLES_WRITTEN, BYTES_PACKED, ...).
+     */
+    public static Map<String, long[]> snapshot() {
+        Map<String, long[]> result = new TreeMap<>();
+        for (Counters c : counters.values())
+            result.put(c.getPath(), c.getAll());
+        return result;
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public static void reset() {
+        for (Counters c : counters.values())
+            c.reset();
+    }
+
+    // ========================================================================================================================
+    // JFR Events
+    // ========================================================================================================================
+
+    /** Timed event around ICellProducer.run (e.g. a complete import of a reader) */
+    public static final int EVENT_PRODUCE = 0;
+
+    /** Timed event around ISamplesWriter.flush */
+    public static final int EVENT_FLUSH = 1;
+
+    /** Timed event around ISamplesProcessor.produce */
+    public static final int EVENT_PROCESS = 2;
+
+    /** Timed event around ICellWriter.write (e.g. a complete export) */
+    public static final int EVENT_WRITE = 3;
+
+    /**
+     * A started timed event.
+     */
+    public interface IEvent {
+
+        /**
+         * Ends the event and commits it, if a recording is active and the duration is above its threshold.
+         *
+         * @param path The signal or record path, or null.
+         * @param serializer The serializer or processor id, or null.
+         */
+        void commit(String path, String serializer);
+    }
+
+    private static final IEvent NONE = (path, serializer) -> {
+    };
+
+    private static final IntFunction<IEvent> EVENTS = loadEvents();
+
+    @SuppressWarnings("unchecked")
+    private static IntFunction<IEvent> loadEvents() {
+        try {
+            Class.forName("jdk.jfr.Event", false, Instrumentation.class.getClassLoader());
+            return (IntFunction<IEvent>) Class.forName(Instrumentation.class.getName() + "Events").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if JFR events are available in this runtime.
+     */
+    public static boolean hasEvents() {
+        return EVENTS != null;
+    }
+
+    /**
+     * Starts a timed event.
+     *
+     * @param type The event type (EVENT_PRODUCE, EVENT_FLUSH, ...).
+     * @return The started event (a no-op event if instrumentation is disabled or JFR is not available).
+     */
+    public static IEvent begin(int type) {
+        return ENABLED && EVENTS != null ? EVENTS.apply(type) : NONE;
+    }
+
+    // ========================================================================================================================
+    // Instrumented Calls
+    // ========================================================================================================================
+
+    /**
+     * Runs a cell producer (e.g. a reader) inside an EVENT_PRODUCE event.
+     *
+     * @param producer The producer.
+     * @param progress The progress, or null.
+     * @param path The input or record path, or null.
+     * @return The cover of the produced cells.
+     */
+    public static ICover run(ICellProducer producer, IProgress progress, String path) {
+        IEvent event = begin(EVENT_PRODUCE);
+        try {
+            return producer.run(progress);
+        } finally {
+            event.commit(path, producer.getId());
+        }
+    }
+
+    /**
+     * Flushes a samples writer inside an EVENT_FLUSH event and counts the flushed fragment.
+     *
+     * @param writer The writer.
+     * @param counters The counters of the signal, or null for the GLOBAL counters.
+     * @param path The signal path, or null.
+     */
+    public static void flush(ISamplesWriter writer, Counters counters, String path) {
+        IEvent event = begin(EVENT_FLUSH);
+        try {
+            writer.flush();
+        } finally {
+            event.commit(path, null);
+        }
+        if (ENABLED)
+            (counters != null ? counters : counters(null)).increment(FRAGMENTS_FLUSHED);
+    }
+
+    /**
+     * Produces the samples of a processor inside an EVENT_PROCESS event.
+     *
+     * @param processor The processor.
+     * @param progress The progress, or null.
+     * @param async True to produce asynchronously (the event then covers the start only).
+     * @param path The signal path, or null.
+     */
+    public static void produce(ISamplesProcessor processor, IProgress progress, boolean async, String path) {
+        IEvent event = begin(EVENT_PROCESS);
+        try {
+            processor.produce(progress, async);
+        } finally {
+            event.commit(path, processor.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Writes cells with a cell writer (e.g. an export) inside an EVENT_WRITE event.
+     *
+     * @param writer The writer.
+     * @param progress The progress, or null.
+     * @param cover The cover of the cells.
+     * @param base The base cell.
+     * @param cells The cells to be written.
+     * @param opts The writer options.
+     */
+    public static void write(ICellWriter writer, IProgress progress, ICover cover, ICell base, List<ICell> cells, int opts) {
+        IEvent event = begin(EVENT_WRITE);
+        try {
+            writer.write(progress, cover, base, cells, opts);
+        } finally {
+            event.commit(base != null ? base.getName() : null, writer.getId());
+        }
+    }
+
+    /**
+     * Searches the sample index of a position and counts the call.
+     *
+     * @param samples The samples.
+     * @param position The position.
+     * @param counters The counters of the signal, or null for the GLOBAL counters.
+     * @return The index (see IReadableSamples.indexAt).
+     */
+    public static int indexAt(IReadableSamples samples, long position, Counters counters) {
+        if (ENABLED)
+            (counters != null ? counters : counters(null)).increment(INDEX_AT);
+        return samples.indexAt(position);
+    }
+}
@@ -0,0 +1,90 @@
+package de.toem.impulse.samples;
+
+import java.util.function.IntFunction;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR events of Instrumentation.
+ *
+ * This class is the only class referring to jdk.jfr. Instrumentation loads it by name if the runtime provides JFR,
+ * so the other classes run on Java 8 runtimes without JFR. It needs to be compiled against Java 11 or newer.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 121
+ */
+final class InstrumentationEvents implements IntFunction<Instrumentation.IEvent> {
+
+    @Override
+    public Instrumentation.IEvent apply(int type) {
+        ImpulseEvent event;
+        switch (type) {
+        case Instrumentation.EVENT_PRODUCE:
+            event = new ProduceEvent();
+            break;
+        case Instrumentation.EVENT_FLUSH:
+            event = new FlushEvent();
+            break;
+        case Instrumentation.EVENT_PROCESS:
+            event = new ProcessEvent();
+            break;
+        default:
+            event = new WriteEvent();
+            break;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Base class of the impulse JFR events.
+     */
+    @Category({ "impulse" })
+    @StackTrace(false)
+    static abstract class ImpulseEvent extends Event implements Instrumentation.IEvent {
+
+        @Label("Path")
+        @Description("Signal or record path")
+        String path;
+
+        @Label("Serializer")
+        @Description("Serializer or processor id")
+        String serializer;
+
+        @Override
+        public void commit(String path, String serializer) {
+            end();
+            if (shouldCommit()) {
+                this.path = path;
+                this.serializer = serializer;
+                commit();
+            }
+        }
+    }
+
+    @Name("de.toem.impulse.Produce")
+    @Label("Cell Producer Run")
+    static class ProduceEvent extends ImpulseEvent {
+    }
+
+    @Name("de.toem.impulse.Flush")
+    @Label("Samples Writer Flush")
+    static class FlushEvent extends ImpulseEvent {
+    }
+
+    @Name("de.toem.impulse.Process")
+    @Label("Samples Processor Produce")
+    static class ProcessEvent extends ImpulseEvent {
+    }
+
+    @Name("de.toem.impulse.Write")
+    @Label("Cell Writer Write")
+    static class WriteEvent extends ImpulseEvent {
+    }
+}
@@ -0,0 +1,210 @@
+package de.toem.impulse.samples.raw;
+
+import de.toem.impulse.samples.ISample;
+
+/**
+ * Table-driven hexadecimal and binary formatting of logic states.
+ *
+ * This class converts logic states directly into characters, without creating intermediate
+ * BigInteger or Logic objects. It is a helper for extensions that format wide logic vectors
+ * (e.g. 256..4096 bits) many times, such as custom views, exporters or formatters.
+ * All methods write into a caller-provided, reusable char[] buffer.
+ *
+ * Two input layouts are supported:
+ * - State arrays: one state (ISample.STATE_*_BITS) per byte, most significant bit first (see Logic.getStates())
+ * - Packed 2-state data: 8 bits per byte, most significant bit first and left aligned
+ *
+ * Hexadecimal digits are built from groups of 4 states, aligned to the least significant bit.
+ * Weak states L and H are treated as 0 and 1. A group that contains only Z states is shown as 'Z',
+ * a group without any known state as 'X', and a group that mixes known and unknown states as '#'.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 83
+ */
+public class LogicFormat {
+
+    private static final char[] HEX_UC = "0123456789ABCDEF".toCharArray();
+    private static final char[] HEX_LC = "0123456789abcdef".toCharArray();
+
+    /** Bit value of each state, or -1 if unknown */
+    private static final int[] STATE_BIT = { 0, 1, -1, -1, 0, 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1 };
+
+    /** Two hex characters for each packed 2-state byte */
+    private static final char[] BYTE_HEX_UC = new char[512];
+    private static final char[] BYTE_HEX_LC = new char[512];
+
+    /** Eight binary characters for each packed 2-state byte */
+    private static final char[] BYTE_BIN = new char[256 * 8];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            BYTE_HEX_UC[b * 2] = HEX_UC[b >> 4];
+            BYTE_HEX_UC[b * 2 + 1] = HEX_UC[b & 0xf];
+            BYTE_HEX_LC[b * 2] = HEX_LC[b >> 4];
+            BYTE_HEX_LC[b * 2 + 1] = HEX_LC[b & 0xf];
+            for (int n = 0; n < 8; n++)
+                BYTE_BIN[b * 8 + n] = (b & (0x80 >> n)) != 0 ? '1' : '0';
+        }
+    }
+
+    // ========================================================================================================================
+    // Length
+    // ========================================================================================================================
+
+    /**
+     * Returns the number of hexadecimal characters for the given number of bits.
+     */
+    public static int hexLength(int bits) {
+        return (bits + 3) >> 2;
+    }
+
+    /**
+     * Returns a buffer that is large enough for the given number of characters, reusing the given buffer if possible.
+     *
+     * @param buffer The current buffer, or null.
+     * @param length The required number of characters.
+     * @return The given buffer or a new one.
+     */
+    public static char[] ensure(char[] buffer, int length) {
+        return buffer != null && buffer.length >= length ? buffer : new char[Math.max(length, buffer != null ? buffer.length * 2 : 64)];
+    }
+
+    // ========================================================================================================================
+    // State arrays
+    // ========================================================================================================================
+
+    /**
+     * Formats logic states as hexadecimal characters.
+     *
+     * @param states The states, one per byte, most significant bit first.
+     * @param start The index of the first (most significant) state.
+     * @param length The number of states.
+     * @param lowercase If true, renders a..f (and x, z) in lowercase.
+     * @param out The output buffer (at least hexLength(length) characters from offset).
+     * @param offset The start offset in the output buffer.
+     * @return The number of characters written.
+     */
+    public static int hex(byte[] states, int start, int length, boolean lowercase, char[] out, int offset) {
+        char[] digits = lowercase ? HEX_LC : HEX_UC;
+        int chars = hexLength(length);
+        int end = start + length;
+        int from = start;
+        int to = end - ((chars - 1) << 2); // first group may be partial
+        for (int n = 0; n < chars; n++, from = to, to += 4) {
+            int value = 0, known = 0, z = 0;
+            for (int i = from; i < to; i++) {
+                int state = states[i] & 0xf;
+                int bit = STATE_BIT[state];
+                value <<= 1;
+                if (bit >= 0) {
+                    value |= bit;
+                    known++;
+                } else if (state == ISample.STATE_Z_BITS)
+                    z++;
+            }
+            int width = to - from;
+            if (known == width)
+                out[offset + n] = digits[value];
+            else if (z == width)
+                out[offset + n] = lowercase ? 'z' : 'Z';
+            else if (known == 0)
+                out[offset + n] = lowercase ? 'x' : 'X';
+            else
+                out[offset + n] = '#';
+        }
+        return chars;
+    }
+
+    /**
+     * Formats logic states as binary characters (one character per state, e.g. '0', '1', 'Z', 'X').
+     *
+     * @param states The states, one per byte, most significant bit first.
+     * @param start The index of the first (most significant) state.
+     * @param length The number of states.
+     * @param lowercase If true, renders non 0/1 states in lowercase.
+     * @param out The output buffer (at least length characters from offset).
+     * @param offset The start offset in the output buffer.
+     * @return The number of characters written.
+     */
+    public static int bin(byte[] states, int start, int length, boolean lowercase, char[] out, int offset) {
+        char[] digits = lowercase ? ISample.STATE_LC_DIGITS : ISample.STATE_UC_DIGITS;
+        for (int n = 0; n < length; n++)
+            out[offset + n] = digits[states[start + n] & 0xf];
+        return length;
+    }
+
+    /**
+     * Formats a logic value as hexadecimal string.
+     *
+     * @param value The logic value.
+     * @param lowercase If true, renders a..f (and x, z) in lowercase.
+     * @return The hexadecimal string without prefix.
+     */
+    public static String hex(Logic value, boolean lowercase) {
+        byte[] states = value.getStates();
+        char[] out = new char[hexLength(states.length)];
+        return new String(out, 0, hex(states, 0, states.length, lowercase, out, 0));
+    }
+
+    // ========================================================================================================================
+    // Packed 2-state data
+    // ========================================================================================================================
+
+    /**
+     * Formats packed 2-state data as hexadecimal characters.
+     * Whole bytes are converted with a single table lookup.
+     *
+     * @param packed The packed bits, 8 per byte, most significant bit first, left aligned.
+     * @param start The index of the first byte.
+     * @param bits The number of bits.
+     * @param lowercase If true, renders a..f in lowercase.
+     * @param out The output buffer (at least hexLength(bits) characters from offset).
+     * @param offset The start offset in the output buffer.
+     * @return The number of characters written.
+     */
+    public static int hexPacked(byte[] packed, int start, int bits, boolean lowercase, char[] out, int offset) {
+        char[] table = lowercase ? BYTE_HEX_LC : BYTE_HEX_UC;
+        char[] digits = lowercase ? HEX_LC : HEX_UC;
+        int chars = hexLength(bits);
+        int shift = (chars << 2) - bits; // leading pad bits to align digits to the lsb
+        if (shift == 0) {
+            int bytes = bits >> 3;
+            for (int n = 0; n < bytes; n++) {
+                int b = (packed[start + n] & 0xff) << 1;
+                out[offset + 2 * n] = table[b];
+                out[offset + 2 * n + 1] = table[b + 1];
+            }
+            if ((bits & 7) != 0)
+                out[offset + chars - 1] = digits[(packed[start + bytes] & 0xf0) >> 4];
+            return chars;
+        }
+        for (int n = 0; n < chars; n++) {
+            int bit = (n << 2) - shift; // index of the first bit of this digit (may be negative)
+            int value = 0;
+            for (int i = bit; i < bit + 4; i++)
+                value = (value << 1) | (i >= 0 ? (packed[start + (i >> 3)] >> (7 - (i & 7))) & 1 : 0);
+            out[offset + n] = digits[value];
+        }
+        return chars;
+    }
+
+    /**
+     * Formats packed 2-state data as binary characters.
+     *
+     * @param packed The packed bits, 8 per byte, most significant bit first, left aligned.
+     * @param start The index of the first byte.
+     * @param bits The number of bits.
+     * @param out The output buffer (at least bits characters from offset).
+     * @param offset The start offset in the output buffer.
+     * @return The number of characters written.
+     */
+    public static int binPacked(byte[] packed, int start, int bits, char[] out, int offset) {
+        int bytes = bits >> 3;
+        for (int n = 0; n < bytes; n++)
+            System.arraycopy(BYTE_BIN, (packed[start + n] & 0xff) << 3, out, offset + (n << 3), 8);
+        if ((bits & 7) != 0)
+            System.arraycopy(BYTE_BIN, (packed[start + bytes] & 0xff) << 3, out, offset + (bytes << 3), bits & 7);
+        return bits;
+    }
+}
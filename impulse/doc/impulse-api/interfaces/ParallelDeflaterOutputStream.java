@@ -0,0 +1,298 @@
+package de.toem.toolkits.pattern.element.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream compressing with deflate on several threads.
+ *
+ * The data is split into blocks (default 128KB) that are deflated concurrently. Each block is primed with the
+ * last 32KB of the previous block as dictionary and ends with a sync flush, so the concatenated blocks form one
+ * regular deflate stream (the same approach as pigz). The compression ratio is close to a sequential deflate,
+ * and the output can be read by any inflater (ZipInputStream, GZIPInputStream).
+ *
+ * The stream writes raw deflate data (e.g. for zip entries, see getCrc, getTotalIn and getTotalOut) or a gzip
+ * member (see gzip). At most 2 x threads blocks are held in memory, so memory stays constant for any output size.
+ *
+ * <pre>
+ * try (OutputStream out = ParallelDeflaterOutputStream.gzip(new FileOutputStream(file), 0)) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 107
+ */
+public class ParallelDeflaterOutputStream extends FilterOutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 << 10;
+    private static final int DICTIONARY_SIZE = 32 << 10;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final int maxPending;
+    private final int level;
+    private final int blockSize;
+    private final boolean gzip;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private byte[] block;
+    private int count;
+    private byte[] dictionary;
+    private long totalIn;
+    private long totalOut;
+    private boolean finished;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a stream writing raw deflate data with its own thread pool.
+     *
+     * @param out
+     *            The target stream
+     * @param threads
+     *            Number of compression threads (0 for the number of processors)
+     */
+    public ParallelDeflaterOutputStream(OutputStream out, int threads) {
+        this(out, null, threads, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, false);
+    }
+
+    /**
+     * Creates a stream writing raw deflate data on the given executor (e.g. shared by several zip entries). The
+     * executor is not shut down by this stream.
+     *
+     * @param out
+     *            The target stream
+     * @param executor
+     *            The executor compressing the blocks
+     * @param threads
+     *            Number of threads of the executor (limits the blocks in flight)
+     * @param level
+     *            The deflate level (Deflater.DEFAULT_COMPRESSION, 1..9)
+     */
+    public ParallelDeflaterOutputStream(OutputStream out, ExecutorService executor, int threads, int level) {
+        this(out, executor, threads, level, DEFAULT_BLOCK_SIZE, false);
+    }
+
+    private ParallelDeflaterOutputStream(OutputStream out, ExecutorService executor, int threads, int level, int blockSize, boolean gzip) {
+        super(out);
+        threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.ownExecutor = executor == null;
+        this.executor = executor != null ? executor : Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "impulse-deflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPending = 2 * threads;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.gzip = gzip;
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * Creates a stream writing one gzip member with its own thread pool.
+     *
+     * @param out
+     *            The target stream
+     * @param threads
+     *            Number of compression threads (0 for the number of processors)
+     * @return The compressing stream
+     * @throws IOException
+     *             If the gzip header cannot be written
+     */
+    public static ParallelDeflaterOutputStream gzip(OutputStream out, int threads) throws IOException {
+        ParallelDeflaterOutputStream stream = new ParallelDeflaterOutputStream(out, null, threads, Deflater.DEFAULT_COMPRESSION,
+                DEFAULT_BLOCK_SIZE, true);
+        out.write(GZIP_HEADER);
+        stream.totalOut = GZIP_HEADER.length;
+        return stream;
+    }
+
+    // ========================================================================================================================
+    // Write
+    // ========================================================================================================================
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished)
+            throw new IOException("Stream finished");
+        crc.update(b, off, len);
+        totalIn += len;
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize)
+                submit(false);
+        }
+    }
+
+    /**
+     * Compresses the buffered data and writes all pending blocks. Flushing ends the current block early, so frequent
+     * flushes reduce the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished && count > 0)
+            submit(false);
+        while (!pending.isEmpty())
+            drain();
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining data and the end of the deflate stream (and the gzip trailer) without closing the target
+     * stream.
+     *
+     * @throws IOException
+     *             If compression or writing fails
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        try {
+            submit(true);
+            while (!pending.isEmpty())
+                drain();
+            if (gzip) {
+                writeInt((int) crc.getValue());
+                writeInt((int) totalIn);
+            }
+        } finally {
+            finished = true;
+            block = null;
+            dictionary = null;
+            if (ownExecutor)
+                executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    // ========================================================================================================================
+    // Status
+    // ========================================================================================================================
+
+    /**
+     * Returns the CRC-32 of the uncompressed data written so far.
+     */
+    public long getCrc() {
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the number of uncompressed bytes written so far.
+     */
+    public long getTotalIn() {
+        return totalIn;
+    }
+
+    /**
+     * Returns the number of compressed bytes written to the target stream (including gzip header and trailer).
+     */
+    public long getTotalOut() {
+        return totalOut;
+    }
+
+    // ========================================================================================================================
+    // Blocks
+    // ========================================================================================================================
+
+    private void submit(boolean last) throws IOException {
+        final byte[] data = block;
+        final int length = count;
+        final byte[] preset = dictionary;
+        dictionary = tail(preset, data, length);
+        pending.add(executor.submit(() -> deflate(data, length, preset, last)));
+        block = last ? null : new byte[blockSize];
+        count = 0;
+        while (pending.size() >= maxPending)
+            drain();
+    }
+
+    private void drain() throws IOException {
+        try {
+            byte[] compressed = pending.poll().get();
+            out.write(compressed);
+            totalOut += compressed.length;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        }
+    }
+
+    private byte[] deflate(byte[] data, int length, byte[] preset, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (preset != null && preset.length > 0)
+                deflater.setDictionary(preset);
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[Math.max(length / 2, 4096)];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished())
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] tail(byte[] preset, byte[] data, int length) {
+        if (length >= DICTIONARY_SIZE)
+            return Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+        int keep = preset != null ? Math.min(preset.length, DICTIONARY_SIZE - length) : 0;
+        byte[] tail = new byte[keep + length];
+        if (keep > 0)
+            System.arraycopy(preset, preset.length - keep, tail, 0, keep);
+        System.arraycopy(data, 0, tail, keep, length);
+        return tail;
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+        totalOut += 4;
+    }
+}
@@ -0,0 +1,563 @@
+package de.toem.impulse.serializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.toem.impulse.provider.ISamplesProvider;
+import de.toem.impulse.samples.IReadableSamples;
+import de.toem.impulse.samples.Instrumentation;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.threading.IProgress;
+
+/**
+ * Parallel export of signals for cell writers.
+ *
+ * Writers that export signal by signal spend most of the time formatting values on a single thread. The
+ * ParallelExport serializes each signal on a worker thread into its own segment (in memory, spilled to a
+ * temporary file when large) and merges the segments into one output:
+ * - writeSegments: segments are appended in signal order (e.g. one block per signal), so the output is
+ *   identical to a sequential export. Segments are written as soon as all previous ones are done.
+ * - writeInterleaved: each serialized sample carries its position; the segments are merged by position with
+ *   a k-way merge (ties in signal order), e.g. for time-ordered formats with one line per change. Positions are
+ *   merged in the finest domain base of the signals (see getDomainBase).
+ *
+ * The output is written through one buffered stream on the target channel; file segments are copied with
+ * FileChannel.transferTo.
+ *
+ * Memory is bounded per segment (setSegmentMemory) and in total (setTotalMemory): once the segments held in memory
+ * reach the total budget, further segments spill to temporary files. writeInterleaved merges at most 64 segments at
+ * once; with more signals, runs of consecutive segments are merged into intermediate segments first, so the number
+ * of open files stays bounded.
+ *
+ * <pre>
+ * new ParallelExport().writeInterleaved(progress, signals, (signal, samples, idx, out) -&gt; {
+ *     out.write(...);  // one line per sample
+ * }, out);
+ * </pre>
+ *
+ * Serializers are called concurrently for different signals and must not share mutable state.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 105
+ */
+public class ParallelExport {
+
+    /** Default size of in-memory segments before they are spilled to a temporary file */
+    public static final int DEFAULT_SEGMENT_MEMORY = 8 << 20;
+
+    /** Default size of all in-memory segments of one export */
+    public static final long DEFAULT_TOTAL_MEMORY = 256 << 20;
+
+    private static final int OUTPUT_BUFFER = 1 << 20;
+    private static final int SEGMENT_BUFFER = 1 << 16;
+    private static final int MERGE_WAYS = 64;
+
+    /**
+     * Serializes a complete signal into its segment.
+     */
+    public interface ISegmentSerializer {
+        /**
+         * @param signal The signal index (in the list given to writeSegments).
+         * @param cell The signal cell.
+         * @param out The segment.
+         */
+        void serialize(int signal, ICell cell, OutputStream out) throws IOException;
+    }
+
+    /**
+     * Serializes one sample of a signal (for interleaved output).
+     */
+    public interface ISampleSerializer {
+        /**
+         * @param signal The signal index (in the list given to writeInterleaved).
+         * @param samples The samples of the signal.
+         * @param idx The sample index.
+         * @param out The output of the sample.
+         */
+        void serialize(int signal, IReadableSamples samples, int idx, OutputStream out) throws IOException;
+    }
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int segmentMemory = DEFAULT_SEGMENT_MEMORY;
+    private long totalMemory = DEFAULT_TOTAL_MEMORY;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Sets the number of worker threads (default: number of processors).
+     */
+    public ParallelExport setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Sets the size of in-memory segments before they are spilled to a temporary file.
+     */
+    public ParallelExport setSegmentMemory(int segmentMemory) {
+        this.segmentMemory = Math.max(0, segmentMemory);
+        return this;
+    }
+
+    /**
+     * Sets the size of all in-memory segments of one export; beyond it, segments are spilled to temporary files.
+     */
+    public ParallelExport setTotalMemory(long totalMemory) {
+        this.totalMemory = Math.max(0, totalMemory);
+        return this;
+    }
+
+    // ========================================================================================================================
+    // Segments
+    // ========================================================================================================================
+
+    /**
+     * Serializes the signals concurrently and writes the segments in signal order.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation (may be null).
+     * @param signals The signal cells.
+     * @param serializer The segment serializer.
+     * @param out The output channel.
+     * @return The number of bytes written, or -1 if cancelled.
+     * @throws IOException If a segment cannot be serialized or written.
+     */
+    public long writeSegments(IProgress progress, List<? extends ICell> signals, ISegmentSerializer serializer, WritableByteChannel out)
+            throws IOException {
+        Instrumentation.IEvent event = Instrumentation.begin(Instrumentation.EVENT_WRITE);
+        ExecutorService executor = executor();
+        ArrayDeque<Future<Segment>> pending = new ArrayDeque<>();
+        AtomicLong budget = new AtomicLong(totalMemory);
+        OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), OUTPUT_BUFFER);
+        long written = 0;
+        try {
+            int next = 0;
+            int done = 0;
+            while (next < signals.size() || !pending.isEmpty()) {
+                if (progress != null && progress.isCanceled())
+                    return -1;
+
+                // submit, bounded by 2 x threads segments in flight
+                while (next < signals.size() && pending.size() < 2 * threads) {
+                    int signal = next++;
+                    ICell cell = signals.get(signal);
+                    pending.add(executor.submit(() -> {
+                        Segment segment = new Segment(segmentMemory, budget);
+                        try {
+                            serializer.serialize(signal, cell, segment);
+                            segment.close();
+                            return segment;
+                        } catch (IOException | RuntimeException e) {
+                            segment.delete();
+                            throw e;
+                        }
+                    }));
+                }
+
+                // append the oldest
+                Segment segment = get(pending.poll());
+                try {
+                    written += segment.appendTo(stream, out);
+                } finally {
+                    segment.delete();
+                }
+                if (progress != null)
+                    progress.done((double) ++done / signals.size(), false);
+            }
+            stream.flush();
+            return written;
+        } finally {
+            cancel(pending, executor);
+            event.commit(null, "segments");
+        }
+    }
+
+    // ========================================================================================================================
+    // Interleaved
+    // ========================================================================================================================
+
+    /**
+     * Returns the finest domain base of the signals. Interleaved positions are merged in this base; serializers
+     * writing positions should convert them to it as well (IDomainBase.convertTo).
+     *
+     * @param signals The signal cells (ISamplesProvider).
+     * @return The domain base, or null if no signal has samples.
+     * @throws IllegalArgumentException If the domain bases are not compatible (e.g. time and frequency).
+     */
+    public static IDomainBase getDomainBase(List<? extends ICell> signals) {
+        IDomainBase base = null;
+        for (ICell cell : signals) {
+            IReadableSamples samples = cell instanceof ISamplesProvider ? ((ISamplesProvider) cell).getSamples() : null;
+            IDomainBase signalBase = samples != null ? samples.getDomainBase() : null;
+            if (signalBase == null)
+                continue;
+            if (base != null && !base.isCompatible(signalBase))
+                throw new IllegalArgumentException("Incompatible domain bases " + base + " and " + signalBase + " (" + cell.getName() + ")");
+            if (base == null || signalBase.isFinerThan(base))
+                base = signalBase;
+        }
+        return base;
+    }
+
+    /**
+     * Serializes the samples of all signals concurrently and writes them merged by position
+     * (samples with equal positions in signal order). The signals need to have compatible domain bases.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation (may be null).
+     * @param signals The signal cells (ISamplesProvider).
+     * @param serializer The sample serializer.
+     * @param out The output channel.
+     * @return The number of bytes written, or -1 if cancelled.
+     * @throws IOException If a sample cannot be serialized or written.
+     * @throws IllegalArgumentException If the domain bases are not compatible.
+     */
+    public long writeInterleaved(IProgress progress, List<? extends ICell> signals, ISampleSerializer serializer, WritableByteChannel out)
+            throws IOException {
+        IDomainBase base = getDomainBase(signals);
+        Instrumentation.IEvent event = Instrumentation.begin(Instrumentation.EVENT_WRITE);
+        ExecutorService executor = executor();
+        ArrayDeque<Future<Segment>> pending = new ArrayDeque<>();
+        AtomicLong budget = new AtomicLong(totalMemory);
+        Segment[] segments = new Segment[signals.size()];
+        try {
+
+            // serialize: { position (long), length (int), bytes }* per signal
+            for (int n = 0; n < signals.size(); n++) {
+                int signal = n;
+                IReadableSamples samples = signals.get(n) instanceof ISamplesProvider ? ((ISamplesProvider) signals.get(n)).getSamples() : null;
+                IDomainBase signalBase = samples != null ? samples.getDomainBase() : null;
+                IDomainBase convert = signalBase != null && !signalBase.equals(base) ? signalBase : null;
+                pending.add(executor.submit(() -> {
+                    Segment segment = new Segment(segmentMemory, budget);
+                    try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(segment, SEGMENT_BUFFER))) {
+                        ByteArrayOutputStream sample = new ByteArrayOutputStream(256);
+                        int count = samples != null ? samples.getCount() : 0;
+                        for (int idx = 0; idx < count; idx++) {
+                            if (progress != null && progress.isCanceled())
+                                break;
+                            sample.reset();
+                            serializer.serialize(signal, samples, idx, sample);
+                            data.writeLong(convert != null ? convert.convertTo(base, samples.multPosAt(idx)) : samples.multPosAt(idx));
+                            data.writeInt(sample.size());
+                            sample.writeTo(data);
+                        }
+                        return segment;
+                    } catch (IOException | RuntimeException e) {
+                        segment.delete();
+                        throw e;
+                    }
+                }));
+            }
+            for (int n = 0; n < segments.length; n++) {
+                segments[n] = get(pending.poll());
+                if (progress != null)
+                    progress.done(0.5 * (n + 1) / segments.length, false);
+            }
+            if (progress != null && progress.isCanceled())
+                return -1;
+
+            // merge runs of consecutive segments until MERGE_WAYS are left (keeps ties in signal order)
+            while (segments.length > MERGE_WAYS) {
+                Segment[] merged = new Segment[(segments.length + MERGE_WAYS - 1) / MERGE_WAYS];
+                boolean complete = false;
+                try {
+                    for (int n = 0; n < merged.length; n++) {
+                        int from = n * MERGE_WAYS;
+                        int to = Math.min(segments.length, from + MERGE_WAYS);
+                        merged[n] = new Segment(segmentMemory, budget);
+                        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(merged[n], SEGMENT_BUFFER))) {
+                            if (merge(progress, Arrays.copyOfRange(segments, from, to), data, true) < 0)
+                                return -1;
+                        } finally {
+                            for (int i = from; i < to; i++) {
+                                segments[i].delete();
+                                segments[i] = null;
+                            }
+                        }
+                    }
+                    complete = true;
+                } finally {
+                    if (!complete)
+                        for (Segment segment : merged)
+                            if (segment != null)
+                                segment.delete();
+                }
+                segments = merged;
+            }
+
+            // k-way merge
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), OUTPUT_BUFFER);
+            long written = merge(progress, segments, stream, false);
+            stream.flush();
+            return written;
+        } finally {
+            cancel(pending, executor);
+            for (Segment segment : segments)
+                if (segment != null)
+                    segment.delete();
+            event.commit(null, "interleaved");
+        }
+    }
+
+    private long merge(IProgress progress, Segment[] segments, OutputStream stream, boolean positions) throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, segments.length));
+        long total = 0;
+        for (int n = 0; n < segments.length; n++) {
+            Cursor cursor = new Cursor(n, segments[n]);
+            total += segments[n].size();
+            if (cursor.next())
+                queue.add(cursor);
+            else
+                cursor.close();
+        }
+        DataOutputStream data = positions ? new DataOutputStream(stream) : null;
+        long written = 0;
+        long consumed = 0;
+        long reported = 0;
+        try {
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                if (positions) {
+                    data.writeLong(cursor.position);
+                    data.writeInt(cursor.length);
+                }
+                stream.write(cursor.bytes, 0, cursor.length);
+                written += cursor.length;
+                consumed += cursor.length + 12;
+                if (cursor.next())
+                    queue.add(cursor);
+                else
+                    cursor.close();
+                if (consumed - reported > OUTPUT_BUFFER && progress != null) {
+                    reported = consumed;
+                    if (progress.isCanceled())
+                        return -1;
+                    if (!positions)
+                        progress.done(0.5 + 0.5 * consumed / Math.max(1, total), false);
+                }
+            }
+            return written;
+        } finally {
+            for (Cursor cursor : queue)
+                cursor.close();
+        }
+    }
+
+    /**
+     * Read position in an interleaved segment.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        final int signal;
+        final DataInputStream in;
+        long position;
+        int length;
+        byte[] bytes = new byte[256];
+
+        Cursor(int signal, Segment segment) throws IOException {
+            this.signal = signal;
+            this.in = new DataInputStream(segment.open());
+        }
+
+        boolean next() throws IOException {
+            try {
+                position = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            length = in.readInt();
+            if (length > bytes.length)
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            in.readFully(bytes, 0, length);
+            return true;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+            }
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            int c = Long.compare(position, o.position);
+            return c != 0 ? c : Integer.compare(signal, o.signal);
+        }
+    }
+
+    // ========================================================================================================================
+    // Segment
+    // ========================================================================================================================
+
+    /**
+     * Output of one worker: in memory up to a limit and while the shared budget allows, then spilled to a
+     * temporary file.
+     */
+    static final class Segment extends OutputStream {
+
+        private final int memory;
+        private final AtomicLong budget;
+        private Buffer buffer = new Buffer();
+        private File file;
+        private OutputStream fileOut;
+        private long size;
+
+        Segment(int memory, AtomicLong budget) {
+            this.memory = memory;
+            this.budget = budget;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target(1).write(b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target(len).write(b, off, len);
+            size += len;
+        }
+
+        private OutputStream target(int len) throws IOException {
+            if (fileOut != null)
+                return fileOut;
+            if (buffer.size() + len <= memory && reserve(len))
+                return buffer;
+            file = File.createTempFile("impulse-export", ".seg");
+            file.deleteOnExit();
+            fileOut = new BufferedOutputStream(new FileOutputStream(file), SEGMENT_BUFFER);
+            buffer.writeTo(fileOut);
+            release();
+            return fileOut;
+        }
+
+        private boolean reserve(int len) {
+            if (budget.addAndGet(-len) >= 0)
+                return true;
+            budget.addAndGet(len);
+            return false;
+        }
+
+        private void release() {
+            if (buffer != null)
+                budget.addAndGet(buffer.size());
+            buffer = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null)
+                fileOut.close();
+        }
+
+        long size() {
+            return size;
+        }
+
+        InputStream open() throws IOException {
+            close();
+            return file != null ? new BufferedInputStream(new FileInputStream(file), SEGMENT_BUFFER) : buffer.open();
+        }
+
+        long appendTo(OutputStream stream, WritableByteChannel channel) throws IOException {
+            if (file == null) {
+                buffer.writeTo(stream);
+                return size;
+            }
+            stream.flush();
+            try (FileChannel in = new FileInputStream(file).getChannel()) {
+                long position = 0;
+                while (position < size)
+                    position += in.transferTo(position, size - position, channel);
+            }
+            return size;
+        }
+
+        void delete() {
+            try {
+                close();
+            } catch (IOException e) {
+            }
+            if (file != null)
+                file.delete();
+            release();
+        }
+    }
+
+    /**
+     * Byte array output that is read back without a copy.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(1 << 12);
+        }
+
+        InputStream open() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+    // ========================================================================================================================
+    // Helpers
+    // ========================================================================================================================
+
+    private ExecutorService executor() {
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "impulse-parallel-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Segment get(Future<Segment> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private static void cancel(ArrayDeque<Future<Segment>> pending, ExecutorService executor) {
+        for (Future<Segment> future : pending)
+            future.cancel(true);
+        executor.shutdownNow();
+        for (Future<Segment> future : pending)
+            if (future.isDone() && !future.isCancelled())
+                try {
+                    future.get().delete();
+                } catch (Exception e) {
+                }
+    }
+}
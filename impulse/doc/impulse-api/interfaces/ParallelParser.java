@@ -0,0 +1,290 @@
+package de.toem.impulse.serializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.toem.impulse.samples.IReadableSamples;
+import de.toem.impulse.samples.ISample;
+import de.toem.impulse.samples.ISamplesWriter;
+import de.toem.impulse.samples.Instrumentation;
+import de.toem.impulse.samples.base.PackedSamples;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.impulse.samples.reader.SamplesReader;
+import de.toem.impulse.samples.writer.BinarySamplesWriter;
+import de.toem.impulse.samples.writer.FloatSamplesWriter;
+import de.toem.impulse.samples.writer.IntegerSamplesWriter;
+import de.toem.impulse.samples.writer.LogicSamplesWriter;
+import de.toem.impulse.samples.writer.TextSamplesWriter;
+import de.toem.toolkits.pattern.threading.IProgress;
+import de.toem.toolkits.utils.serializer.ParseException;
+
+/**
+ * Concurrent parsing of large files with a seekable structure.
+ *
+ * The ParallelParser splits a region of a file into chunks at resync points provided by an
+ * IRandomAccessRecordReader, parses the chunks concurrently into per-chunk writers, and stitches
+ * the chunks in position order into the target writers of the signals (using ISamplesWriter.writeSample(ISamplePack)).
+ *
+ * Key features of this class include:
+ * - Chunks are memory-mapped windows of the file (no stream copies)
+ * - The number of chunks in memory is bounded (2 x threads), so files of any size can be parsed
+ * - Chunks are stitched as soon as all previous chunks are done, so content becomes visible progressively
+ * - Flushing after each stitched chunk is scheduled with a FlushScheduler
+ *
+ * Struct and enumeration signals are not supported. Their packed samples refer to member and enumeration ids of
+ * the legend of their writer, and each chunk writer builds its own legend, so the ids of different chunks do not
+ * match. Parse such signals sequentially.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 95
+ */
+public class ParallelParser {
+
+    /** Default chunk size in bytes */
+    public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+    private final IRandomAccessRecordReader reader;
+    private final ISamplesWriter[] targets;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * A chunk of the input, parsed by one thread.
+     */
+    public static final class Chunk {
+
+        private final int index;
+        private final long start;
+        private final long end;
+        private final ByteBuffer buffer;
+        private final ISamplesWriter[] writers;
+        private final IRandomAccessRecordReader reader;
+
+        Chunk(IRandomAccessRecordReader reader, int index, long start, long end, ByteBuffer buffer, int signals) {
+            this.reader = reader;
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.buffer = buffer;
+            this.writers = new ISamplesWriter[signals];
+        }
+
+        /**
+         * Returns the index of the chunk (0..n-1 in file order).
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the file offset of the chunk start.
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the file offset of the chunk end (exclusive).
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns the chunk data (read-only, position 0 is the chunk start).
+         */
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Returns the chunk writer of the given signal, creating it on first use.
+         *
+         * @param signal The signal index.
+         * @return The opened chunk writer.
+         */
+        public ISamplesWriter getWriter(int signal) {
+            ISamplesWriter writer = writers[signal];
+            if (writer == null)
+                writers[signal] = writer = reader.createChunkWriter(signal);
+            return writer;
+        }
+    }
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a parallel parser.
+     *
+     * @param reader The reader, providing resync points and chunk parsing.
+     * @param targets The writers of the signals (indexed by signal index), opened by the reader.
+     * @throws IllegalArgumentException If a target is a struct or enumeration writer (see isSupported).
+     */
+    public ParallelParser(IRandomAccessRecordReader reader, ISamplesWriter[] targets) {
+        for (ISamplesWriter target : targets)
+            if (target != null && !isSupported(target.getSampleType()))
+                throw new IllegalArgumentException("Parallel parsing does not support struct and enumeration signals");
+        this.reader = reader;
+        this.targets = targets;
+    }
+
+    /**
+     * Returns true if signals of the given data type can be parsed in parallel. Struct and enumeration samples refer
+     * to ids of their legend, which differ between the chunk writers.
+     *
+     * @param type The data type (ISample.DATA_TYPE_*).
+     * @return true if the type is supported.
+     */
+    public static boolean isSupported(int type) {
+        return type != ISample.DATA_TYPE_STRUCT && type != ISample.DATA_TYPE_ENUM && type != ISample.DATA_TYPE_ENUM_ARRAY;
+    }
+
+    /**
+     * Sets the nominal chunk size in bytes (default 64MB, maximum 2GB).
+     */
+    public ParallelParser setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+        return this;
+    }
+
+    /**
+     * Sets the number of parsing threads (default: number of processors).
+     */
+    public ParallelParser setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    // ========================================================================================================================
+    // Parse
+    // ========================================================================================================================
+
+    /**
+     * Parses a region of the channel concurrently and stitches the results into the target writers.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation (may be null).
+     * @param channel The input channel.
+     * @param start The file offset of the first chunk (e.g. behind the header).
+     * @param end The file offset of the region end (exclusive).
+     * @param scheduler The flush scheduler of the reader (may be null), notified after each stitched chunk.
+     * @return The highest position written into the target writers, or Long.MIN_VALUE if none.
+     * @throws ParseException If a chunk could not be parsed.
+     */
+    public long parse(IProgress progress, SeekableByteChannel channel, long start, long end, FlushScheduler scheduler) throws ParseException {
+        long position = Long.MIN_VALUE;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "impulse-parallel-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        try {
+            long offset = start;
+            int index = 0;
+            while ((offset < end || !pending.isEmpty()) && (progress == null || !progress.isCanceled())) {
+
+                // submit chunks, bounded
+                while (offset < end && pending.size() < 2 * threads) {
+                    long next = offset + chunkSize >= end ? end : Math.min(end, reader.resync(channel, offset + chunkSize));
+                    if (next <= offset)
+                        next = end;
+                    if (next - offset > Integer.MAX_VALUE)
+                        throw new ParseException("Chunk too large at offset " + offset);
+                    Chunk chunk = new Chunk(reader, index++, offset, next, IChannelRecordReader.map(channel, offset, (int) (next - offset)), targets.length);
+                    pending.add(executor.submit(() -> {
+                        reader.parseChunk(progress, chunk);
+                        return chunk;
+                    }));
+                    offset = next;
+                }
+
+                // stitch the oldest chunk
+                Chunk chunk = pending.poll().get();
+                long last = stitch(chunk);
+                if (last > position)
+                    position = last;
+                if (progress != null && end > start)
+                    progress.done((double) (chunk.getEnd() - start) / (end - start), false);
+                if (scheduler != null && position != Long.MIN_VALUE)
+                    scheduler.maybeFlush(position, chunk.getEnd() - chunk.getStart());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ParseException)
+                throw (ParseException) cause;
+            throw new ParseException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted", e);
+        } catch (IOException e) {
+            throw new ParseException(e.getMessage(), e);
+        } finally {
+            for (Future<Chunk> future : pending)
+                future.cancel(true);
+            executor.shutdownNow();
+        }
+        return position;
+    }
+
+    private long stitch(Chunk chunk) {
+        long position = Long.MIN_VALUE;
+        for (int signal = 0; signal < targets.length; signal++) {
+            ISamplesWriter writer = chunk.writers[signal];
+            if (writer == null)
+                continue;
+            Instrumentation.flush(writer, null, null);
+            IReadableSamples samples = new SamplesReader((PackedSamples) writer);
+            ISamplesWriter target = targets[signal];
+            int count = samples.getCount();
+            for (int idx = 0; idx < count; idx++)
+                target.writeSample(samples.packedAt(idx, 0));
+            if (count > 0)
+                position = Math.max(position, samples.positionAt(count - 1).longValue());
+            chunk.writers[signal] = null;
+        }
+        return position;
+    }
+
+    // ========================================================================================================================
+    // Writers
+    // ========================================================================================================================
+
+    /**
+     * Creates a standalone writer (not attached to a record), e.g. for IRandomAccessRecordReader.createChunkWriter.
+     *
+     * @param type The data type (ISample.DATA_TYPE_*).
+     * @param scale The scale (e.g. number of logic bits), or -1.
+     * @param format The format (ISample.FORMAT_*).
+     * @param base The domain base of the signal.
+     * @return The writer (not opened).
+     * @throws IllegalArgumentException If the type is not supported (see isSupported).
+     */
+    public static ISamplesWriter newWriter(int type, int scale, String format, IDomainBase base) {
+        if (!isSupported(type))
+            throw new IllegalArgumentException("Parallel parsing does not support struct and enumeration signals");
+        switch (type) {
+        case ISample.DATA_TYPE_LOGIC:
+            return new LogicSamplesWriter(null, null, null, null, type, scale, format, base);
+        case ISample.DATA_TYPE_FLOAT:
+        case ISample.DATA_TYPE_FLOAT_ARRAY:
+            return new FloatSamplesWriter(null, null, null, null, type, scale, format, base);
+        case ISample.DATA_TYPE_INTEGER:
+        case ISample.DATA_TYPE_INTEGER_ARRAY:
+            return new IntegerSamplesWriter(null, null, null, null, type, scale, format, base);
+        case ISample.DATA_TYPE_TEXT:
+        case ISample.DATA_TYPE_TEXT_ARRAY:
+            return new TextSamplesWriter(null, null, null, null, type, scale, format, base);
+        default:
+            return new BinarySamplesWriter(null, null, null, null, type, scale, format, base);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.toem.toolkits.pattern.element.serializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import de.toem.toolkits.pattern.element.serializer.ICellSerializer.ICellReader;
+import de.toem.toolkits.pattern.element.serializer.ICellSerializer.IInputRequest;
+
+/**
+ * Parallel format detection.
+ *
+ * Asks a list of readers isApplicable(name, contentType, cellType, inputRequest) and returns the reader to be used.
+ * The probes run concurrently on the given executor and share one input request (usually a HeaderBuffer),
+ * so the input is read only once. The result is the same as with sequential probing:
+ * - the first reader (in list order) that returns APPLICABLE
+ * - otherwise the first reader that returns MAY_APPLICABLE
+ * - otherwise null
+ *
+ * Results are evaluated in list order: once a reader returns APPLICABLE and all preceding probes are done,
+ * probe returns and the probes of the following readers that have not started are cancelled. Running probes are
+ * not interrupted, as an interrupt would close the file channel shared through the input request; they complete in
+ * the background. A HeaderBuffer is frozen by stream(), so these late probes cannot consume the parsed input.
+ *
+ * Probes run concurrently and must not modify shared reader state.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 99
+ */
+public class ReaderProbe {
+
+    private ReaderProbe() {
+    }
+
+    /**
+     * Probes the readers sequentially.
+     *
+     * @param readers The readers in order of preference.
+     * @param name The name of the input (e.g. file name)
+     * @param contentType The content type of the input
+     * @param cellType The target cell type
+     * @param inputRequest The input data source to be examined
+     * @return The selected reader, or null if none is applicable.
+     */
+    public static <T extends ICellReader> T probe(List<T> readers, String name, String contentType, String cellType,
+            IInputRequest inputRequest) {
+        return probe(readers, name, contentType, cellType, inputRequest, null);
+    }
+
+    /**
+     * Probes the readers concurrently.
+     *
+     * @param readers The readers in order of preference.
+     * @param name The name of the input (e.g. file name)
+     * @param contentType The content type of the input
+     * @param cellType The target cell type
+     * @param inputRequest The input data source to be examined (shared by all probes, must be thread-safe)
+     * @param executor The executor for the probes (null for sequential probing)
+     * @return The selected reader, or null if none is applicable.
+     */
+    public static <T extends ICellReader> T probe(List<T> readers, String name, String contentType, String cellType,
+            IInputRequest inputRequest, ExecutorService executor) {
+
+        // sequential
+        if (executor == null || readers.size() < 2) {
+            T may = null;
+            for (T reader : readers) {
+                int applicable = isApplicable(reader, name, contentType, cellType, inputRequest);
+                if (applicable == ICellSerializer.APPLICABLE)
+                    return reader;
+                if (applicable == ICellSerializer.MAY_APPLICABLE && may == null)
+                    may = reader;
+            }
+            return may;
+        }
+
+        // concurrent
+        List<Future<Integer>> probes = new ArrayList<>(readers.size());
+        for (T reader : readers)
+            probes.add(executor.submit(() -> isApplicable(reader, name, contentType, cellType, inputRequest)));
+        try {
+            T may = null;
+            for (int n = 0; n < probes.size(); n++) {
+                int applicable;
+                try {
+                    applicable = probes.get(n).get();
+                } catch (ExecutionException e) {
+                    applicable = ICellSerializer.NOT_APPLICABLE;
+                }
+                if (applicable == ICellSerializer.APPLICABLE)
+                    return readers.get(n);
+                if (applicable == ICellSerializer.MAY_APPLICABLE && may == null)
+                    may = readers.get(n);
+            }
+            return may;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            // no interrupt: FileChannel is interruptible and would be closed for the reader that parses
+            for (Future<Integer> probe : probes)
+                probe.cancel(false);
+        }
+    }
+
+    private static int isApplicable(ICellReader reader, String name, String contentType, String cellType, IInputRequest inputRequest) {
+        try {
+            return reader.isApplicable(name, contentType, cellType, inputRequest);
+        } catch (RuntimeException e) {
+            return ICellSerializer.NOT_APPLICABLE;
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package de.toem.impulse.serializer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import de.toem.impulse.cells.record.IRecord;
+import de.toem.impulse.provider.ISamplesProvider;
+import de.toem.impulse.samples.IMemberDescriptor;
+import de.toem.impulse.samples.IReadableSamples;
+import de.toem.impulse.samples.ISample;
+import de.toem.impulse.samples.ISamplePack;
+import de.toem.impulse.samples.ISamplesLegend;
+import de.toem.impulse.samples.ISamplesWriter;
+import de.toem.impulse.samples.ISingleDomainRecordProducer;
+import de.toem.impulse.samples.compound.PackedSample;
+import de.toem.impulse.samples.domain.DomainBases;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.impulse.samples.raw.Enumeration;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.general.ITagged;
+import de.toem.toolkits.pattern.threading.IProgress;
+import de.toem.toolkits.utils.serializer.ParseException;
+
+/**
+ * Binary snapshot of a parsed record.
+ *
+ * Parsing a large text trace (e.g. a 10GB VCD file) again on every open is expensive. A snapshot stores the
+ * parsed record in a binary layout that is restored without parsing:
+ * - the scope tree and the signal descriptors (name, description, tags, type, scale, format, domain base)
+ * - the legend of each signal (member descriptors, member enumerations and enumerations), with their ids
+ * - the packed samples of each signal (the raw ISamplePack bytes and tag levels, no value decoding)
+ *
+ * Layout (header, sample blocks and trailer little endian, directory big endian as written by DataOutputStream):
+ *
+ * <pre>
+ * 0   magic "IMPSNAP1"
+ * 8   version (int), flags (int)
+ * 16  source size (long), source modification time (long)
+ * 32  sample blocks, one per signal: { position (long), format0 (byte), order (byte), layer (short), tag (byte), length (int), value bytes }*
+ * ..  directory: record, scopes, signals with legend and sample block offset; strings as { present (byte), length (int), UTF-8 bytes }
+ * -16 directory offset (long), directory length (long)
+ * </pre>
+ *
+ * The directory is read first; the sample blocks are memory-mapped one signal at a time while restoring.
+ * Snapshots are cached next to the source (see getFile) and keyed by the source size and modification time:
+ *
+ * <pre>
+ * File snapshot = RecordSnapshot.getFile(source);
+ * if (RecordSnapshot.isValid(snapshot, source))
+ *     ... // open the snapshot with the SnapshotReader
+ * else
+ *     ... // parse the source, then RecordSnapshot.save(progress, record, source)
+ * </pre>
+ *
+ * Not included: proxies, relations and sample attachments.
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 103
+ */
+public class RecordSnapshot {
+
+    /** File extension of snapshots */
+    public static final String EXTENSION = ".isnap";
+
+    /** Snapshot format version */
+    public static final int VERSION = 3;
+
+    static final byte[] MAGIC = "IMPSNAP1".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER_LENGTH = 32;
+    static final int TRAILER_LENGTH = 16;
+    private static final int SAMPLE_HEADER_LENGTH = 17;
+
+    private RecordSnapshot() {
+    }
+
+    // ========================================================================================================================
+    // Header
+    // ========================================================================================================================
+
+    /**
+     * Header of a snapshot.
+     */
+    public static final class Header {
+        public final int version;
+        public final long sourceSize;
+        public final long sourceModified;
+        public final long directoryOffset;
+        public final long directoryLength;
+
+        Header(ByteBuffer header, ByteBuffer trailer) throws IOException {
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            trailer.order(ByteOrder.LITTLE_ENDIAN);
+            for (int n = 0; n < MAGIC.length; n++)
+                if (header.get(n) != MAGIC[n])
+                    throw new IOException("Not a record snapshot");
+            version = header.getInt(8);
+            sourceSize = header.getLong(16);
+            sourceModified = header.getLong(24);
+            directoryOffset = trailer.getLong(0);
+            directoryLength = trailer.getLong(8);
+        }
+    }
+
+    /**
+     * Reads the header of a snapshot.
+     *
+     * @param channel The snapshot channel.
+     * @return The header.
+     * @throws IOException If the channel does not contain a snapshot.
+     */
+    public static Header header(SeekableByteChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_LENGTH + TRAILER_LENGTH)
+            throw new IOException("Not a record snapshot");
+        return new Header(IChannelRecordReader.map(channel, 0, HEADER_LENGTH), IChannelRecordReader.map(channel, size - TRAILER_LENGTH, TRAILER_LENGTH));
+    }
+
+    /**
+     * Returns true if the given bytes start with the snapshot magic (e.g. for isApplicable).
+     */
+    public static boolean isSnapshot(byte[] header) {
+        if (header == null || header.length < MAGIC.length)
+            return false;
+        for (int n = 0; n < MAGIC.length; n++)
+            if (header[n] != MAGIC[n])
+                return false;
+        return true;
+    }
+
+    // ========================================================================================================================
+    // Cache
+    // ========================================================================================================================
+
+    /**
+     * Returns the cached snapshot file of a source (".&lt;name&gt;.isnap" next to the source).
+     */
+    public static File getFile(File source) {
+        return new File(source.getAbsoluteFile().getParentFile(), "." + source.getName() + EXTENSION);
+    }
+
+    /**
+     * Returns true if the snapshot exists, is of the current version and matches size and modification time of the source.
+     */
+    public static boolean isValid(File snapshot, File source) {
+        if (!snapshot.isFile() || !source.isFile())
+            return false;
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            Header header = header(channel);
+            return header.version == VERSION && header.sourceSize == source.length() && header.sourceModified == source.lastModified()
+                    && header.directoryOffset + header.directoryLength + TRAILER_LENGTH == channel.size();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot of a record into the cache of its source. The snapshot is written to a temporary
+     * file and moved into place, so a partially written snapshot is never used.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation (may be null).
+     * @param record The record cell (root or base cell of the record).
+     * @param source The source file of the record.
+     * @return The snapshot file, or null if cancelled.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public static File save(IProgress progress, ICell record, File source) throws IOException {
+        File snapshot = getFile(source);
+        File temp = new File(snapshot.getParentFile(), snapshot.getName() + ".tmp");
+        boolean done = false;
+        try (OutputStream out = new FileOutputStream(temp)) {
+            done = write(progress, record, source.length(), source.lastModified(), out);
+        } finally {
+            if (!done)
+                temp.delete();
+        }
+        if (!done)
+            return null;
+        Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return snapshot;
+    }
+
+    // ========================================================================================================================
+    // Write
+    // ========================================================================================================================
+
+    /**
+     * Writes the snapshot of a record.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation (may be null).
+     * @param record The record cell (root or base cell of the record).
+     * @param sourceSize The size of the source (cache key), or 0.
+     * @param sourceModified The modification time of the source (cache key), or 0.
+     * @param out The output stream (not closed).
+     * @return false if cancelled.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public static boolean write(IProgress progress, ICell record, long sourceSize, long sourceModified, OutputStream out) throws IOException {
+
+        // collect scopes and signals
+        List<ICell> scopes = new ArrayList<>();
+        List<ICell> signals = new ArrayList<>();
+        collect(record, scopes, signals);
+        Map<ICell, Integer> scopeIndex = new IdentityHashMap<>();
+        for (int n = 0; n < scopes.size(); n++)
+            scopeIndex.put(scopes.get(n), n);
+
+        // header
+        LittleEndianOutput data = new LittleEndianOutput(new BufferedOutputStream(out, 1 << 16));
+        data.write(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(0);
+        data.writeLong(sourceSize);
+        data.writeLong(sourceModified);
+        long[] blocks = new long[signals.size() * 2];
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        IDomainBase domainBase = null;
+
+        // sample blocks
+        for (int n = 0; n < signals.size(); n++) {
+            if (progress != null && progress.isCanceled())
+                return false;
+            IReadableSamples samples = ((ISamplesProvider) signals.get(n)).getSamples();
+            blocks[n * 2] = data.position;
+            if (samples != null) {
+                writeSamples(samples, data);
+                if (samples.getCount() > 0) {
+                    start = Math.min(start, samples.getStartAsMultiple());
+                    end = Math.max(end, samples.getEndAsMultiple());
+                }
+                if (domainBase == null)
+                    domainBase = samples.getDomainBase();
+            }
+            blocks[n * 2 + 1] = data.position - blocks[n * 2];
+            if (progress != null)
+                progress.done((double) (n + 1) / signals.size(), false);
+        }
+
+        // directory
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+        DataOutputStream directory = new DataOutputStream(directoryBytes);
+        writeString(directory, record.getName());
+        writeString(directory, domainBase != null ? domainBase.toString() : null);
+        directory.writeLong(start != Long.MAX_VALUE ? start : 0);
+        directory.writeLong(end != Long.MIN_VALUE ? end : 0);
+        directory.writeInt(scopes.size());
+        for (ICell scope : scopes) {
+            Integer parent = scopeIndex.get(scope.getCellContainer());
+            directory.writeInt(parent != null ? parent : -1);
+            writeString(directory, scope.getName());
+            writeString(directory, scope.getDescription());
+            writeString(directory, tags(scope));
+        }
+        directory.writeInt(signals.size());
+        for (int n = 0; n < signals.size(); n++) {
+            ICell signal = signals.get(n);
+            IReadableSamples samples = ((ISamplesProvider) signal).getSamples();
+            Integer parent = scopeIndex.get(signal.getCellContainer());
+            directory.writeInt(parent != null ? parent : -1);
+            writeString(directory, signal.getName());
+            writeString(directory, signal.getDescription());
+            writeString(directory, tags(signal));
+            directory.writeInt(samples != null ? samples.getSampleType() : ISample.DATA_TYPE_UNKNOWN);
+            directory.writeInt(samples != null ? samples.getScale() : -1);
+            writeString(directory, samples != null ? samples.getFormat() : null);
+            writeString(directory, samples != null && samples.getDomainBase() != null ? samples.getDomainBase().toString() : null);
+            directory.writeInt(samples != null ? samples.getCount() : 0);
+            directory.writeLong(blocks[n * 2]);
+            directory.writeLong(blocks[n * 2 + 1]);
+            writeLegend(samples != null ? samples.getLegend() : null, directory);
+        }
+        directory.flush();
+        long directoryOffset = data.position;
+        data.write(directoryBytes.toByteArray());
+
+        // trailer
+        data.writeLong(directoryOffset);
+        data.writeLong(directoryBytes.size());
+        data.flush();
+        return true;
+    }
+
+    private static String tags(ICell cell) {
+        return cell instanceof ITagged ? ((ITagged) cell).getTags() : null;
+    }
+
+    private static void collect(ICell cell, List<ICell> scopes, List<ICell> signals) {
+        List<ICell> children = cell.getChildren();
+        if (children == null)
+            return;
+        for (ICell child : children) {
+            if (child instanceof IRecord.Scope) {
+                scopes.add(child);
+                collect(child, scopes, signals);
+            } else if (child instanceof IRecord.Signal)
+                signals.add(child);
+        }
+    }
+
+    /**
+     * Writes the packed samples of a signal (sample block).
+     */
+    static void writeSamples(IReadableSamples samples, LittleEndianOutput out) throws IOException {
+        int count = samples.getCount();
+        for (int idx = 0; idx < count; idx++) {
+            ISamplePack pack = samples.packedAt(idx, 0);
+            out.writeLong(pack.getPositionAsMultiple());
+            out.writeByte(pack.getFormat0());
+            out.writeByte(pack.getOrder());
+            out.writeShort(pack.getLayer());
+            out.writeByte(pack.getTag());
+            out.writeInt(pack.getValueLength());
+            out.write(pack.getBytes(), pack.getValuePos(), pack.getValueLength());
+        }
+    }
+
+    private static void writeLegend(ISamplesLegend legend, DataOutputStream out) throws IOException {
+        List<IMemberDescriptor> members = legend != null ? legend.getMembers() : null;
+        int size = members != null ? members.size() : 0;
+        out.writeInt(size);
+        for (int n = 0; n < size; n++) {
+            IMemberDescriptor member = members.get(n);
+            out.writeInt(member.getNId());
+            out.writeInt(member.getParentNId());
+            writeString(out, member.getLabel());
+            writeString(out, member.getDescription());
+            writeString(out, member.getIconId());
+            writeString(out, member.getTags());
+            out.writeInt(member.getSampleType());
+            out.writeInt(member.getScale());
+            writeString(out, member.getFormat());
+            writeEnums(legend.getMemberEnums(member.getNId()), out);
+        }
+        for (int domain = ISample.ENUM_MIN; domain < ISample.ENUM_MEMBER_0; domain++)
+            writeEnums(legend != null ? legend.getEnums(domain) : null, out);
+    }
+
+    private static void writeEnums(List<Enumeration> enums, DataOutputStream out) throws IOException {
+        int size = enums != null ? enums.size() : 0;
+        out.writeInt(size);
+        for (int n = 0; n < size; n++) {
+            out.writeInt(enums.get(n).value);
+            writeString(out, enums.get(n).label);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        // not writeUTF, it is limited to 64KB (e.g. long descriptions or tags)
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    // ========================================================================================================================
+    // Read
+    // ========================================================================================================================
+
+    /**
+     * Restores a snapshot into a record producer (usually the snapshot reader).
+     * Opens and closes the producer.
+     *
+     * @param progress Interface for reporting progress and checking for cancellation (may be null).
+     * @param producer The record producer.
+     * @param channel The snapshot channel.
+     * @throws ParseException If the snapshot cannot be read.
+     */
+    public static void read(IProgress progress, ISingleDomainRecordProducer producer, SeekableByteChannel channel) throws ParseException {
+        try {
+            Header header = header(channel);
+            if (header.version != VERSION)
+                throw new ParseException("Unsupported snapshot version " + header.version);
+            if (header.directoryLength > Integer.MAX_VALUE || header.directoryOffset + header.directoryLength > channel.size())
+                throw new ParseException("Incomplete snapshot");
+            ByteBuffer buffer = IChannelRecordReader.map(channel, header.directoryOffset, (int) header.directoryLength);
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            DataInputStream directory = new DataInputStream(new ByteArrayInputStream(bytes));
+
+            // record
+            String name = readString(directory);
+            String base = readString(directory);
+            long start = directory.readLong();
+            long end = directory.readLong();
+            producer.initRecord(name, base != null ? DomainBases.parse(base) : null);
+
+            // scopes
+            int scopeCount = directory.readInt();
+            IRecord.Scope[] scopes = new IRecord.Scope[scopeCount];
+            for (int n = 0; n < scopeCount; n++) {
+                int parent = directory.readInt();
+                scopes[n] = producer.addScope(parent >= 0 ? scopes[parent] : null, readString(directory), readString(directory), readString(directory));
+            }
+
+            // signals
+            int signalCount = directory.readInt();
+            ISamplesWriter[] writers = new ISamplesWriter[signalCount];
+            List<Consumer<ISamplesWriter>> legends = new ArrayList<>();
+            long[] blocks = new long[signalCount * 2];
+            for (int n = 0; n < signalCount; n++) {
+                int parent = directory.readInt();
+                String signalName = readString(directory);
+                String description = readString(directory);
+                String tags = readString(directory);
+                int type = directory.readInt();
+                int scale = directory.readInt();
+                String format = readString(directory);
+                String domainBase = readString(directory);
+                directory.readInt(); // count
+                blocks[n * 2] = directory.readLong();
+                blocks[n * 2 + 1] = directory.readLong();
+                IRecord.Signal signal = producer.addSignal(parent >= 0 ? scopes[parent] : null, signalName, description, tags, type, scale, format,
+                        domainBase != null ? DomainBases.parse(domainBase) : null, true);
+                writers[n] = producer.getWriter(signal);
+                legends.add(readLegend(directory));
+            }
+
+            // samples (the legends exist once the writers are opened)
+            producer.open(start);
+            for (int n = 0; n < signalCount; n++) {
+                if (progress != null && progress.isCanceled())
+                    break;
+                legends.get(n).accept(writers[n]);
+                readSamples(channel, blocks[n * 2], blocks[n * 2 + 1], writers[n]);
+                if (progress != null)
+                    progress.done((double) (n + 1) / signalCount, false);
+            }
+            producer.close(end);
+        } catch (IOException e) {
+            throw new ParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a sample block into a writer (memory-mapped in windows of IChannelRecordReader.DEFAULT_WINDOW). The
+     * samples are written as packs, so tag levels are restored; a sample rejected by the writer fails the restore.
+     */
+    static void readSamples(SeekableByteChannel channel, long offset, long length, ISamplesWriter writer) throws IOException {
+        long end = offset + length;
+        while (offset < end) {
+            ByteBuffer buffer = IChannelRecordReader.map(channel, offset, (int) Math.min(IChannelRecordReader.DEFAULT_WINDOW, end - offset))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            SnapshotSample sample = new SnapshotSample();
+            int pos = 0;
+            int limit = buffer.limit();
+            while (pos + SAMPLE_HEADER_LENGTH <= limit) {
+                int valueLength = buffer.getInt(pos + 13);
+                if (pos + SAMPLE_HEADER_LENGTH + valueLength > limit) {
+                    if (pos == 0)
+                        throw new IOException("Sample exceeds mapping window");
+                    break; // continue with the next window
+                }
+                sample.set(buffer, pos, valueLength);
+                if (!writer.writeSample(sample))
+                    throw new IOException("Sample rejected at position " + sample.getPositionAsMultiple());
+                pos += SAMPLE_HEADER_LENGTH + valueLength;
+            }
+            if (pos == 0)
+                throw new IOException("Truncated sample block");
+            offset += pos;
+        }
+    }
+
+    /**
+     * Reusable pack of a restored sample (value bytes copied from the mapped window).
+     */
+    private static final class SnapshotSample extends PackedSample {
+
+        SnapshotSample() {
+            bytes = new byte[256];
+        }
+
+        void set(ByteBuffer buffer, int pos, int valueLength) {
+            units = buffer.getLong(pos);
+            format0 = buffer.get(pos + 8);
+            order = buffer.get(pos + 9);
+            layer = buffer.getShort(pos + 10);
+            tag = buffer.get(pos + 12) & 0xff;
+            if (valueLength > bytes.length)
+                bytes = new byte[Math.max(valueLength, bytes.length * 2)];
+            buffer.position(pos + SAMPLE_HEADER_LENGTH);
+            buffer.get(bytes, 0, valueLength);
+            valueLen = valueLength;
+        }
+    }
+
+    private static Consumer<ISamplesWriter> readLegend(DataInputStream in) throws IOException {
+        List<Consumer<ISamplesWriter>> entries = new ArrayList<>();
+        int members = in.readInt();
+        for (int n = 0; n < members; n++) {
+            int nid = in.readInt();
+            int parent = in.readInt();
+            String label = readString(in);
+            String description = readString(in);
+            String iconId = readString(in);
+            String tags = readString(in);
+            int type = in.readInt();
+            int scale = in.readInt();
+            String format = readString(in);
+            entries.add(writer -> writer.setMember(nid, parent, label, description, iconId, tags, type, scale, format));
+            int enums = in.readInt();
+            for (int e = 0; e < enums; e++) {
+                int value = in.readInt();
+                String enumLabel = readString(in);
+                entries.add(writer -> writer.setMemberEnum(nid, value, enumLabel));
+            }
+        }
+        for (int n = ISample.ENUM_MIN; n < ISample.ENUM_MEMBER_0; n++) {
+            int domain = n;
+            int enums = in.readInt();
+            for (int e = 0; e < enums; e++) {
+                int value = in.readInt();
+                String label = readString(in);
+                entries.add(writer -> writer.setEnum(domain, value, label));
+            }
+        }
+        return writer -> {
+            for (Consumer<ISamplesWriter> entry : entries)
+                entry.accept(writer);
+        };
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (!in.readBoolean())
+            return null;
+        int length = in.readInt();
+        if (length < 0 || length > in.available())
+            throw new IOException("Invalid string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ========================================================================================================================
+    // Output
+    // ========================================================================================================================
+
+    /**
+     * Little endian output with position.
+     */
+    static final class LittleEndianOutput {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8];
+        long position;
+
+        LittleEndianOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+
+        void writeByte(int v) throws IOException {
+            out.write(v);
+            position++;
+        }
+
+        void writeShort(int v) throws IOException {
+            buffer[0] = (byte) v;
+            buffer[1] = (byte) (v >> 8);
+            write(buffer, 0, 2);
+        }
+
+        void writeInt(int v) throws IOException {
+            for (int n = 0; n < 4; n++)
+                buffer[n] = (byte) (v >> (8 * n));
+            write(buffer, 0, 4);
+        }
+
+        void writeLong(long v) throws IOException {
+            for (int n = 0; n < 8; n++)
+                buffer[n] = (byte) (v >> (8 * n));
+            write(buffer, 0, 8);
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package de.toem.impulse.samples;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.toem.impulse.cells.record.IRecord;
+import de.toem.impulse.cells.record.RecordSignal;
+import de.toem.impulse.samples.ISamples.ISamplesReleasedListener;
+import de.toem.impulse.samples.base.PackedSamples;
+import de.toem.impulse.samples.compound.PackedSample;
+import de.toem.impulse.samples.domain.DomainValue;
+import de.toem.impulse.samples.domain.IDomainBase;
+import de.toem.impulse.samples.reader.SamplesReader;
+import de.toem.toolkits.pattern.element.ICell;
+import de.toem.toolkits.pattern.pageable.Release;
+import de.toem.toolkits.pattern.properties.IPropertyModel;
+import de.toem.toolkits.pattern.properties.PropertyModel;
+
+/**
+ * Retention policy for long-running live records.
+ *
+ * Interfaces and adaptors feeding from live sources (TCP, serial ports, devices) extend their signals without
+ * bound. A retention policy limits each signal of a producer to
+ * - the last N samples,
+ * - the last T domain units (e.g. "10min" for a time record) and/or
+ * - the last M MB of packed sample data.
+ *
+ * The policy is applied by the producer at its flush cadence. A signal exceeding one of its limits by more than the
+ * slack (default 50%) is trimmed: the retained tail is moved into a new writer, which replaces the writer of the
+ * signal, and the signal is updated. The sample valid at the new start is kept at the start, so each signal starts
+ * with its correct state. Trimming is amortized by the slack: with 50%, a signal holds at most 1.5 times its limit and
+ * each sample is moved twice on average.
+ *
+ * <pre>
+ * SamplesRetention retention = SamplesRetention.create(getProperties());
+ * FlushScheduler scheduler = new FlushScheduler(position -&gt; {
+ *     retention.apply(this);
+ *     changed(CHANGED_SIGNALS, position);
+ *     flushAndSetProgress(progress);
+ * });
+ * ...
+ * getWriter(signal).write(...);  // fetch the writer after apply, it may have been replaced
+ * </pre>
+ *
+ * Listeners (ISamplesReleasedListener) are notified for each trimmed signal with a reduced release, so views and
+ * processors can drop their caches and indices of the removed head.
+ *
+ * Notes:
+ * - apply must be called by the thread writing the signals
+ * - Groups crossing the new start are cut
+ * - Relations pointing into the removed head are not adjusted
+ *
+ * Copyright (c) 2013-2025 Thomas Haber
+ * All rights reserved.
+ * docID: 115
+ */
+public class SamplesRetention {
+
+    /** Default fraction a limit may be exceeded before a signal is trimmed */
+    public static final double DEFAULT_SLACK = 0.5;
+
+    /** No retention; signals grow without limit */
+    public static final SamplesRetention NONE = new SamplesRetention(0, null, 0);
+
+    private static final String READER = "retentionReader";
+
+    private final int samples;
+    private final DomainValue domain;
+    private final long bytes;
+    private final double slack;
+    private final List<ISamplesReleasedListener> listeners = new CopyOnWriteArrayList<>();
+
+    private long trimmedSignals;
+    private long droppedSamples;
+
+    // ========================================================================================================================
+    // Construct
+    // ========================================================================================================================
+
+    /**
+     * Creates a retention policy with the default slack.
+     *
+     * @param samples Number of samples to retain per signal (0 for no limit).
+     * @param domain Domain range to retain per signal (e.g. "10min"; null or empty for no limit).
+     * @param bytes Packed sample bytes to retain per signal (0 for no limit).
+     * @throws IllegalArgumentException If the domain value cannot be parsed.
+     */
+    public SamplesRetention(int samples, String domain, long bytes) {
+        this(samples, domain, bytes, DEFAULT_SLACK);
+    }
+
+    /**
+     * Creates a retention policy.
+     *
+     * @param samples Number of samples to retain per signal (0 for no limit).
+     * @param domain Domain range to retain per signal (e.g. "10min"; null or empty for no limit).
+     * @param bytes Packed sample bytes to retain per signal (0 for no limit).
+     * @param slack Fraction a limit may be exceeded before a signal is trimmed (e.g. 0.5).
+     * @throws IllegalArgumentException If the domain value cannot be parsed.
+     */
+    public SamplesRetention(int samples, String domain, long bytes, double slack) {
+        this.samples = Math.max(0, samples);
+        this.domain = domain != null && !domain.trim().isEmpty() ? DomainValue.parse(domain.trim()) : null;
+        if (domain != null && !domain.trim().isEmpty() && this.domain == null)
+            throw new IllegalArgumentException("Invalid domain value: " + domain);
+        this.bytes = Math.max(0, bytes);
+        this.slack = Math.max(0, slack);
+    }
+
+    /**
+     * Creates the retention policy from the properties of a producer ("retainSamples", "retainDomain" and
+     * "retainSize"). Properties not contained in the model are ignored.
+     *
+     * @param properties The producer properties.
+     * @return The retention policy (NONE if no limit is set).
+     * @throws IllegalArgumentException If the domain value cannot be parsed.
+     */
+    public static SamplesRetention create(IPropertyModel properties) {
+        if (properties == null)
+            return NONE;
+        Integer samples = properties.getTyped("retainSamples", Integer.class);
+        Integer size = properties.getTyped("retainSize", Integer.class);
+        SamplesRetention retention = new SamplesRetention(samples != null ? samples : 0, properties.getVal("retainDomain"),
+                size != null ? (long) size << 20 : 0);
+        return retention.isEmpty() ? NONE : retention;
+    }
+
+    // ========================================================================================================================
+    // Property Model
+    // ========================================================================================================================
+
+    /**
+     * Returns the retention properties ("retainSamples", "retainDomain" and "retainSize") to be added to the property
+     * model of an adaptor or reader.
+     *
+     * @return The property model.
+     */
+    public static PropertyModel getPropertyModel() {
+        return new PropertyModel()
+                .add("retainSamples", 0, null, null, null, "Retain Samples", null, "Number of samples retained per signal (0 for no limit)")
+                .add("retainDomain", "", null, null, "Retain Range", null, "Domain range retained per signal (e.g. 10min; empty for no limit)")
+                .add("retainSize", 0, null, null, null, "Retain Size (MB)", null, "Sample data retained per signal in MB (0 for no limit)");
+    }
+
+    // ========================================================================================================================
+    // Listeners
+    // ========================================================================================================================
+
+    /**
+     * Registers a listener notified for each trimmed signal. The listener receives the new samples of the signal,
+     * the release before trimming and a reduced release.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(ISamplesReleasedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener.
+     */
+    public void removeListener(ISamplesReleasedListener listener) {
+        listeners.remove(listener);
+    }
+
+    // ========================================================================================================================
+    // Apply
+    // ========================================================================================================================
+
+    /**
+     * Returns true if this policy does not limit any signal.
+     */
+    public boolean isEmpty() {
+        return samples == 0 && domain == null && bytes == 0;
+    }
+
+    /**
+     * Applies the policy to all signals created by the producer.
+     *
+     * @param producer The producer.
+     * @return The number of trimmed signals.
+     */
+    public int apply(IRecordProducer producer) {
+        ICell base = isEmpty() ? null : producer.getBase();
+        if (base == null)
+            return 0;
+        int trimmed = 0;
+        for (IRecord.Signal signal : base.getTribe(false, IRecord.Signal.class))
+            if (signal.getData(IRecordProducer.PRODUCER) == producer && apply(producer, signal))
+                trimmed++;
+        return trimmed;
+    }
+
+    /**
+     * Applies the policy to a signal. If the signal is trimmed, its writer is replaced (see
+     * IRecordProducer.getWriter) and the signal is updated.
+     *
+     * @param producer The producer of the signal.
+     * @param signal The signal.
+     * @return true if the signal was trimmed.
+     */
+    public boolean apply(IRecordProducer producer, IRecord.Signal signal) {
+        ISamplesWriter writer = producer.getWriter(signal);
+        if (isEmpty() || !(writer instanceof PackedSamples) || !writer.isOpen())
+            return false;
+
+        // flushed view of the writer, reused between calls
+        ISamplesReader reader = (ISamplesReader) signal.getData(READER);
+        if (reader == null || reader.getData(READER) != writer) {
+            reader = new SamplesReader((PackedSamples) writer);
+            reader.setData(READER, writer);
+        }
+        reader = writer.flushAndUpdateReader(reader);
+        signal.setData(READER, reader);
+        int count = reader.getCount();
+        if (count < 2)
+            return false;
+
+        // first retained index and position for each limit
+        boolean exceeded = false;
+        int first = 0;
+        long last = reader.multPosAt(count - 1);
+        long start = reader.multPosAt(0);
+        if (samples > 0 && count > samples) {
+            exceeded |= count > samples * (1 + slack);
+            first = count - samples;
+        }
+        if (bytes > 0) {
+            long size = ((PackedSamples) writer).getPageable(1).size();
+            if (size > bytes) {
+                exceeded |= size > bytes * (1 + slack);
+                first = Math.max(first, (int) (count - count * bytes / size));
+            }
+        }
+        long cut = reader.multPosAt(first);
+        long range = convert(domain, reader.getDomainBase());
+        if (range > 0 && last - start > range) {
+            exceeded |= last - start > range * (1 + slack);
+            cut = Math.max(cut, last - range);
+        }
+        if (!exceeded)
+            return false;
+
+        // continuous signals keep their grid
+        long rate = reader.getRateAsMultiple();
+        if (rate > 0)
+            cut = start + Math.floorDiv(cut - start, rate) * rate;
+        while (first < count - 1 && reader.multPosAt(first) < cut)
+            first++;
+        int carry = reader.multPosAt(first) > cut && first > 0 ? first - 1 : -1;
+
+        // move the retained tail into a new writer
+        long release = reader.getRelease();
+        ISamplesWriter target = producer.createWriter(signal);
+        if (reader.getLegend() != null)
+            target.addAll(reader.getLegend());
+        target.open(cut, rate);
+        if (carry >= 0) {
+            // the sample valid at the new start is moved to the start (with its tag level, outside of its group)
+            PackedSample pack = new PackedSample(reader.packedAt(carry, 0));
+            pack.setUnits(cut);
+            pack.setOrder(ISample.GO_NONE);
+            target.writeSample(pack);
+        }
+        for (int idx = first; idx < count; idx++)
+            target.writeSample(reader.packedAt(idx, 0));
+        // the new writer starts with a new release; mark the signal as reduced so it accepts the update
+        if (signal instanceof RecordSignal)
+            ((RecordSignal) signal).release = Release.reduce(signal.getRelease());
+        target.flushAndUpdateSignal(signal);
+        signal.setData(READER, null);
+
+        trimmedSignals++;
+        droppedSamples += carry >= 0 ? carry : first;
+        if (!listeners.isEmpty()) {
+            ISamplesReader trimmed = new SamplesReader((PackedSamples) target);
+            for (ISamplesReleasedListener listener : listeners)
+                listener.released(trimmed, release, Release.reduce(release));
+        }
+        return true;
+    }
+
+    // ========================================================================================================================
+    // Status
+    // ========================================================================================================================
+
+    /**
+     * Returns the number of trimming operations.
+     */
+    public long getTrimmedSignals() {
+        return trimmedSignals;
+    }
+
+    /**
+     * Returns the number of samples removed from the heads of the signals.
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    // ========================================================================================================================
+    // Utils
+    // ========================================================================================================================
+
+    private static long convert(DomainValue value, IDomainBase base) {
+        if (value == null || base == null)
+            return 0;
+        Number multiple = value.convertMultipleTo(base, IDomainBase.CONVERT_ANY);
+        return multiple != null ? new BigDecimal(multiple.toString()).setScale(0, RoundingMode.CEILING).longValue() : 0;
+    }
+}